@@ -12,12 +12,16 @@ import ru.practicum.ewm.compilation.model.Compilation;
 import ru.practicum.ewm.compilation.repository.CompilationRepository;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.service.EventViewService;
 import ru.practicum.ewm.exception.NotFoundException;
 
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,6 +30,7 @@ public class CompilationServiceImpl implements CompilationService {
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
     private final CompilationMapper compilationMapper;
+    private final EventViewService eventViewService;
 
     @Override
     @Transactional
@@ -59,15 +64,13 @@ public class CompilationServiceImpl implements CompilationService {
             compilations = compilationRepository.findCompilationLimited(from, size);
         }
         log.info("{} compilations were found", compilations.size());
-        return compilations.stream()
-                .map(compilationMapper::mapToCompilationDto)
-                .toList();
+        return mapWithViews(compilations);
     }
 
 
     @Override
     public CompilationDto getCompilationById(Long compilationId) {
-        CompilationDto compilationDto = compilationMapper.mapToCompilationDto(findCompilationById(compilationId));
+        CompilationDto compilationDto = mapWithViews(List.of(findCompilationById(compilationId))).getFirst();
         log.info("Compilation was found successfully, compilationDto: {}", compilationDto);
         return compilationDto;
     }
@@ -110,4 +113,17 @@ public class CompilationServiceImpl implements CompilationService {
                             compilationId));
                 });
     }
+
+    private List<CompilationDto> mapWithViews(List<Compilation> compilations) {
+        Map<Long, Long> views = eventViewService.getViews(compilations.stream()
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .collect(Collectors.toMap(Event::getId, Function.identity(), (a, b) -> a))
+                .values());
+        List<CompilationDto> compilationDtos = compilations.stream()
+                .map(compilationMapper::mapToCompilationDto)
+                .toList();
+        compilationDtos.forEach(compilationDto -> compilationDto.getEvents()
+                .forEach(event -> event.setViews(views.getOrDefault(event.getId(), 0L))));
+        return compilationDtos;
+    }
 }
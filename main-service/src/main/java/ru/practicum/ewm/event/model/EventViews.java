@@ -0,0 +1,26 @@
+package ru.practicum.ewm.event.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "event_views")
+@NoArgsConstructor
+@Getter
+@Setter
+public class EventViews {
+
+    @Id
+    @Column(name = "event_id")
+    private Long eventId;
+
+    private Long views;
+
+    @Column(name = "unique_views")
+    private Long uniqueViews;
+}
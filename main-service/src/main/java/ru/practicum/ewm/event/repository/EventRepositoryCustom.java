@@ -8,7 +8,7 @@ import java.util.List;
 
 public interface EventRepositoryCustom {
     List<Event> searchEvents(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
-                             LocalDateTime rangeEnd, Boolean onlyAvailable, Integer from,
+                             LocalDateTime rangeEnd, Boolean onlyAvailable, boolean orderByViews, Integer from,
                              Integer size);
 
     List<Event> findEventsFiltered(List<Long> users, List<State> states, List<Long> categories,
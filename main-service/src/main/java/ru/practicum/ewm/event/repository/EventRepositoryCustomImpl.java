@@ -1,10 +1,12 @@
 package ru.practicum.ewm.event.repository;
 
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
 import ru.practicum.ewm.enums.State;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.QEvent;
+import ru.practicum.ewm.event.model.QEventViews;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -16,11 +18,16 @@ public class EventRepositoryCustomImpl implements EventRepositoryCustom {
     @Override
     public List<Event> searchEvents(String text, List<Long> categories, Boolean paid,
                                     LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable,
-                                    Integer from, Integer size) {
+                                    boolean orderByViews, Integer from, Integer size) {
         QEvent event = QEvent.event;
 
-        return jpaQueryFactory
-                .selectFrom(event)
+        JPAQuery<Event> query = jpaQueryFactory.selectFrom(event);
+        if (orderByViews) {
+            QEventViews views = QEventViews.eventViews;
+            query.leftJoin(views).on(views.eventId.eq(event.id))
+                    .orderBy(views.uniqueViews.desc().nullsLast(), event.id.asc());
+        }
+        return query
                 .where(text != null ? event.annotation.containsIgnoreCase(text)
                                 .or(event.description.containsIgnoreCase(text)) : null,
                         categories != null ? event.category.id.in(categories) : null,
@@ -0,0 +1,32 @@
+package ru.practicum.ewm.event.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.ewm.event.model.EventViews;
+
+import java.util.Optional;
+
+public interface EventViewsRepository extends JpaRepository<EventViews, Long> {
+
+    @Modifying
+    @Query(value = """
+            insert into event_views (event_id, views, unique_views)
+            select e.id, :views, :uniqueViews from events e where e.id = :eventId
+            on conflict (event_id) do update set views = excluded.views, unique_views = excluded.unique_views
+            """, nativeQuery = true)
+    int upsert(@Param("eventId") Long eventId,
+               @Param("views") Long views,
+               @Param("uniqueViews") Long uniqueViews);
+
+    @Query(value = "select last_offset from view_feed_checkpoint where id = 1", nativeQuery = true)
+    Optional<Long> findFeedOffset();
+
+    @Modifying
+    @Query(value = """
+            insert into view_feed_checkpoint (id, last_offset) values (1, :offset)
+            on conflict (id) do update set last_offset = excluded.last_offset
+            """, nativeQuery = true)
+    void saveFeedOffset(@Param("offset") Long offset);
+}
@@ -7,7 +7,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.EndpointHitSaveDto;
 import ru.practicum.StatsClient;
-import ru.practicum.ViewStatsDto;
 import ru.practicum.ewm.category.model.Category;
 import ru.practicum.ewm.category.repository.CategoryRepository;
 import ru.practicum.ewm.enums.Sort;
@@ -29,6 +28,7 @@ import ru.practicum.ewm.user.repository.UserRepository;
 import java.time.LocalDateTime;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -41,6 +41,7 @@ public class EventServiceImpl implements EventService {
     private final EventMapper eventMapper;
     private final LocationMapper locationMapper;
     private final StatsClient statsClient;
+    private final EventViewService eventViewService;
 
     @Override
     @Transactional
@@ -201,7 +202,7 @@ public class EventServiceImpl implements EventService {
         }
         sendStats(request);
         EventDto eventDto = eventMapper.mapToEventDto(event);
-        eventDto.setViews(getEventViews(event));
+        eventDto.setViews(eventViewService.getViews(List.of(event)).getOrDefault(event.getId(), 0L));
         log.info("Event was found successfully, eventDto: {}", eventDto);
         return eventDto;
     }
@@ -213,13 +214,15 @@ public class EventServiceImpl implements EventService {
         log.info("Search public events");
         checkRange(rangeStart, rangeEnd);
         List<Event> events = eventRepository.searchEvents(
-                text, categories, paid, rangeStart, rangeEnd, onlyAvailable, from, size
+                text, categories, paid, rangeStart, rangeEnd, onlyAvailable,
+                sort == Sort.VIEWS && eventViewService.hasLocalViews(), from, size
         );
         sendStats(request);
+        Map<Long, Long> views = eventViewService.getViews(events);
         List<EventShortDto> eventShortDtos = events.stream()
                 .map(event -> {
                     EventShortDto eventShortDto = eventMapper.mapToEventShortDto(event);
-                    eventShortDto.setViews(getEventViews(event));
+                    eventShortDto.setViews(views.getOrDefault(event.getId(), 0L));
                     return eventShortDto;
                 })
                 .toList();
@@ -264,18 +267,8 @@ public class EventServiceImpl implements EventService {
                 request.getRemoteAddr(),
                 LocalDateTime.now()
         );
-        statsClient.saveHit(hitSaveDto);
-        log.debug("Hit saved successfully {}", hitSaveDto);
-    }
-
-    private Long getEventViews(Event event) {
-        List<ViewStatsDto> stats = statsClient.getStats(
-                event.getPublishedOn(),
-                LocalDateTime.now(),
-                List.of("/events/" + event.getId()),
-                true
-        );
-        return stats.isEmpty() ? 0 : stats.getFirst().getHits();
+        statsClient.recordHit(hitSaveDto);
+        log.debug("Hit recorded successfully {}", hitSaveDto);
     }
 
     private List<EventShortDto> sortEvents(List<EventShortDto> eventShortDtos, Sort sort) {
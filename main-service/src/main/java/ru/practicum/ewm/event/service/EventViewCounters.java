@@ -0,0 +1,134 @@
+package ru.practicum.ewm.event.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.StatsViewFeed;
+import ru.practicum.ViewUpdateDto;
+import ru.practicum.ewm.event.repository.EventViewsRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Unique views per event, fed by the stats-server update stream; the table and the stream offset are written in one
+// transaction, so after a restart the stream resumes exactly where the persisted counters end
+@Service
+@ConditionalOnProperty(name = "stats-server.feed.enabled", havingValue = "true")
+@Slf4j
+public class EventViewCounters {
+    private static final String EVENT_URI_PREFIX = "/events/";
+
+    private final StatsViewFeed viewFeed;
+    private final EventViewsRepository eventViewsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long reconnectDelayMillis;
+    private final boolean virtualThread;
+    private final Map<Long, Long> views = new ConcurrentHashMap<>();
+    private final Counter updateCounter;
+    private final Counter reconnectCounter;
+    private volatile long offset;
+    private volatile boolean running = true;
+    private Thread reader;
+
+    public EventViewCounters(StatsViewFeed viewFeed,
+                             EventViewsRepository eventViewsRepository,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${stats-server.feed.reconnect-delay:1s}") Duration reconnectDelay,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThread,
+                             MeterRegistry meterRegistry) {
+        this.viewFeed = viewFeed;
+        this.eventViewsRepository = eventViewsRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.reconnectDelayMillis = reconnectDelay.toMillis();
+        this.virtualThread = virtualThread;
+        this.updateCounter = meterRegistry.counter("ewm.views.feed.updates");
+        this.reconnectCounter = meterRegistry.counter("ewm.views.feed.reconnects");
+        meterRegistry.gauge("ewm.views.feed.offset", this, counters -> counters.offset);
+    }
+
+    @PostConstruct
+    public void start() {
+        eventViewsRepository.findAll().forEach(row -> views.put(row.getEventId(), row.getUniqueViews()));
+        offset = eventViewsRepository.findFeedOffset().orElse(0L);
+        log.info("Loaded views for {} events, resuming view feed after offset {}", views.size(), offset);
+        Thread.Builder threads = virtualThread ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        reader = threads.name("view-feed-reader").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        reader.interrupt();
+    }
+
+    public Map<Long, Long> getViews(Collection<Long> eventIds) {
+        Map<Long, Long> result = new HashMap<>();
+        for (Long eventId : eventIds) {
+            Long count = views.get(eventId);
+            if (count != null) {
+                result.put(eventId, count);
+            }
+        }
+        return result;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                viewFeed.stream(offset, EVENT_URI_PREFIX, this::apply);
+            } catch (RuntimeException e) {
+                log.warn("View feed interrupted at offset {}: {}", offset, e.getMessage());
+            }
+            if (!running) {
+                return;
+            }
+            reconnectCounter.increment();
+            try {
+                TimeUnit.MILLISECONDS.sleep(reconnectDelayMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void apply(List<ViewUpdateDto> updates) {
+        Map<Long, Long> applied = new HashMap<>();
+        long last = updates.getLast().getOffset();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (ViewUpdateDto update : updates) {
+                Long eventId = eventId(update.getUri());
+                if (eventId != null
+                        && eventViewsRepository.upsert(eventId, update.getHits(), update.getUniqueHits()) > 0) {
+                    applied.put(eventId, update.getUniqueHits());
+                }
+            }
+            eventViewsRepository.saveFeedOffset(last);
+        });
+        views.putAll(applied);
+        offset = last;
+        updateCounter.increment(updates.size());
+        log.debug("Applied {} view updates up to offset {}", applied.size(), last);
+    }
+
+    private static Long eventId(String uri) {
+        if (!uri.startsWith(EVENT_URI_PREFIX)) {
+            return null;
+        }
+        String id = uri.substring(EVENT_URI_PREFIX.length());
+        if (id.isEmpty() || id.length() > 18 || !id.chars().allMatch(Character::isDigit)) {
+            return null;
+        }
+        return Long.valueOf(id);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.ewm.event.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.practicum.StatsClient;
+import ru.practicum.ViewStatsDto;
+import ru.practicum.ViewsResult;
+import ru.practicum.ewm.event.model.Event;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventViewService {
+    private static final String EVENT_URI_PREFIX = "/events/";
+
+    private final StatsClient statsClient;
+    private final Optional<EventViewCounters> viewCounters;
+
+    public boolean hasLocalViews() {
+        return viewCounters.isPresent();
+    }
+
+    public Map<Long, Long> getViews(Collection<Event> events) {
+        if (viewCounters.isPresent()) {
+            return viewCounters.get().getViews(events.stream()
+                    .filter(event -> event.getPublishedOn() != null)
+                    .map(Event::getId)
+                    .toList());
+        }
+        Map<String, LocalDateTime> startsByUri = new HashMap<>();
+        for (Event event : events) {
+            if (event.getPublishedOn() != null) {
+                startsByUri.put(EVENT_URI_PREFIX + event.getId(), event.getPublishedOn());
+            }
+        }
+        Map<Long, Long> views = new HashMap<>();
+        if (startsByUri.isEmpty()) {
+            return views;
+        }
+        log.debug("Request views for {} events", startsByUri.size());
+        ViewsResult result = statsClient.getViews(startsByUri, LocalDateTime.now(), true);
+        if (result.stale()) {
+            log.warn("Stats service unavailable, using last known views for {} events", startsByUri.size());
+        }
+        for (ViewStatsDto stats : result.stats()) {
+            Long eventId = Long.valueOf(stats.getUri().substring(EVENT_URI_PREFIX.length()));
+            views.merge(eventId, stats.getHits(), Long::sum);
+        }
+        return views;
+    }
+}
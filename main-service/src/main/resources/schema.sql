@@ -59,3 +59,14 @@ CREATE TABLE IF NOT EXISTS subscriptions (
     follower_id BIGINT NOT NULL REFERENCES users(id),
     followed_id BIGINT NOT NULL REFERENCES users(id)
 );
+
+CREATE TABLE IF NOT EXISTS event_views (
+    event_id BIGINT PRIMARY KEY REFERENCES events(id),
+    views BIGINT NOT NULL,
+    unique_views BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS view_feed_checkpoint (
+    id INT PRIMARY KEY,
+    last_offset BIGINT NOT NULL
+);
@@ -0,0 +1,94 @@
+package ru.practicum.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.EndpointHitSaveDto;
+import ru.practicum.codec.StatsBinaryCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Encode/decode throughput of a hit batch in the binary wire format against the JSON path StatsClient used
+// before; bytes per hit for both formats are printed once per fork
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(CodecBenchmark.BATCH_SIZE)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+    static final int BATCH_SIZE = 1000;
+    private static final TypeReference<List<EndpointHitSaveDto>> HITS = new TypeReference<>() {
+    };
+
+    // Distinct uris in a batch: few for a flush dominated by popular events, many for a long-tail one
+    @Param({"10", "1000"})
+    private int uris;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private List<EndpointHitSaveDto> hits;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 0, 0);
+        hits = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            timestamp = timestamp.plusSeconds(random.nextInt(3));
+            hits.add(new EndpointHitSaveDto("ewm-main-service", "/events/" + random.nextInt(uris),
+                    "192.168." + random.nextInt(256) + "." + random.nextInt(256), timestamp));
+        }
+        json = objectMapper.writeValueAsBytes(hits);
+        binary = encodeBinary();
+        if (!hits.equals(StatsBinaryCodec.readHits(new ByteArrayInputStream(binary)))
+                || !hits.equals(objectMapper.readValue(json, HITS))) {
+            throw new IllegalStateException("Decoded batch differs from the input");
+        }
+        System.out.printf("%nuris=%d: %.1f bytes per hit as JSON, %.1f as binary%n", uris,
+                (double) json.length / BATCH_SIZE, (double) binary.length / BATCH_SIZE);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(hits);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BATCH_SIZE * 32);
+        StatsBinaryCodec.writeHits(hits, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<EndpointHitSaveDto> decodeJson() throws IOException {
+        return objectMapper.readValue(json, HITS);
+    }
+
+    @Benchmark
+    public List<EndpointHitSaveDto> decodeBinary() throws IOException {
+        return StatsBinaryCodec.readHits(new ByteArrayInputStream(binary), binary.length);
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.EndpointHitSaveDto;
+import ru.practicum.StatsServer;
+import ru.practicum.mapper.EndpointHitMapper;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.StatsRepository;
+import ru.practicum.service.HitDictionary;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Rows per second written into hits by the binary COPY path (insertAll) against JPA saveAll, each batch in its own
+// transaction. Boots the stats-server context without the web layer against a dedicated database, which it
+// truncates between iterations: a local stats_bench unless SPRING_DATASOURCE_URL (and _USERNAME / _PASSWORD)
+// point elsewhere
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(HitInsertBenchmark.BATCH_SIZE)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HitInsertBenchmark {
+    static final int BATCH_SIZE = 1000;
+    private static final int URIS = 100;
+    private static final String DEFAULT_URL = "jdbc:postgresql://localhost:5432/stats_bench";
+
+    private ConfigurableApplicationContext context;
+    private StatsRepository statsRepository;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private List<EndpointHit> hits;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(StatsServer.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + System.getenv().getOrDefault("SPRING_DATASOURCE_URL", DEFAULT_URL),
+                        "--spring.jpa.show-sql=false", "--logging.level.root=WARN");
+        statsRepository = context.getBean(StatsRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        Random random = new Random(42);
+        LocalDateTime timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        List<EndpointHitSaveDto> hitSaveDtos = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            hitSaveDtos.add(new EndpointHitSaveDto("ewm-main-service", "/events/" + random.nextInt(URIS),
+                    "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256),
+                    timestamp.plusSeconds(random.nextInt(3600))));
+        }
+        HitDictionary hitDictionary = context.getBean(HitDictionary.class);
+        hitDictionary.preload(hitSaveDtos.stream().map(EndpointHitSaveDto::getApp).toList(),
+                hitSaveDtos.stream().map(EndpointHitSaveDto::getUri).toList());
+        hits = context.getBean(EndpointHitMapper.class).mapToEndpointHits(hitSaveDtos);
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("truncate hits");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void copy() {
+        List<EndpointHit> batch = fresh();
+        transactionTemplate.executeWithoutResult(status -> statsRepository.insertAll(batch));
+    }
+
+    @Benchmark
+    public List<EndpointHit> saveAll() {
+        List<EndpointHit> batch = fresh();
+        return transactionTemplate.execute(status -> statsRepository.saveAll(batch));
+    }
+
+    // saveAll assigns ids to the entities it persists, so every invocation starts from new ones
+    private List<EndpointHit> fresh() {
+        List<EndpointHit> batch = new ArrayList<>(hits.size());
+        for (EndpointHit hit : hits) {
+            batch.add(new EndpointHit(null, hit.getAppId(), hit.getUriId(), hit.getIp(), hit.getTimestamp(), 1));
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,153 @@
+package ru.practicum.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop HTTP load: every client sends the next GET as soon as the previous one answers, and throughput plus
+// latency percentiles are printed at the end. With --proxy-port it also runs a TCP proxy to --proxy-target that
+// holds every chunk the caller sends for --proxy-delay-ms, to give a dependency (stats-server) a fixed latency
+public final class HttpLoad {
+    private static final int BUFFER_BYTES = 16 * 1024;
+
+    private HttpLoad() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        if (!options.containsKey("url") && !options.containsKey("proxy-port")) {
+            System.out.println("Usage: HttpLoad [--url=... --clients=200 --warmup-seconds=10 --seconds=30]"
+                    + " [--proxy-port=... --proxy-target=http://host:port --proxy-delay-ms=0]");
+            return;
+        }
+        if (options.containsKey("proxy-port")) {
+            proxy(Integer.parseInt(options.get("proxy-port")), URI.create(options.get("proxy-target")),
+                    Long.parseLong(options.getOrDefault("proxy-delay-ms", "0")));
+        }
+        if (options.containsKey("url")) {
+            load(URI.create(options.get("url")), Integer.parseInt(options.getOrDefault("clients", "200")),
+                    Long.parseLong(options.getOrDefault("warmup-seconds", "10")),
+                    Long.parseLong(options.getOrDefault("seconds", "30")));
+        } else {
+            Thread.currentThread().join();
+        }
+    }
+
+    private static void load(URI url, int clients, long warmupSeconds, long seconds) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        HttpRequest request = HttpRequest.newBuilder(url).build();
+        long measureFrom = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+        long end = measureFrom + seconds * 1_000_000_000L;
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    long started;
+                    while ((started = System.nanoTime()) < end) {
+                        boolean ok;
+                        try {
+                            ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (IOException e) {
+                            ok = false;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        if (started >= measureFrom) {
+                            latencies.add(System.nanoTime() - started);
+                            if (!ok) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (sorted.length == 0) {
+            System.out.println("No requests completed in the measurement window");
+            return;
+        }
+        System.out.printf("clients=%d requests=%d rps=%.0f p50=%.1fms p99=%.1fms max=%.1fms errors=%d%n", clients,
+                sorted.length, (double) sorted.length / seconds, percentile(sorted, 0.5), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6, errors.get());
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * quantile))] / 1e6;
+    }
+
+    private static void proxy(int port, URI target, long delayMillis) throws IOException {
+        ServerSocket server = new ServerSocket(port);
+        Thread.ofVirtual().name("proxy-accept").start(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket caller = server.accept();
+                    Socket upstream = new Socket();
+                    upstream.connect(new InetSocketAddress(target.getHost(), target.getPort()));
+                    Thread.ofVirtual().start(() -> pipe(caller, upstream, delayMillis));
+                    Thread.ofVirtual().start(() -> pipe(upstream, caller, 0));
+                } catch (IOException e) {
+                    System.err.println("Proxy connection failed: " + e.getMessage());
+                }
+            }
+        });
+        System.out.printf("Proxying :%d to %s with %d ms added per request%n", port, target, delayMillis);
+    }
+
+    private static void pipe(Socket from, Socket to, long delayMillis) {
+        byte[] buffer = new byte[BUFFER_BYTES];
+        try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The other side closed the connection
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(from);
+            close(to);
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg
+                        + " in " + Arrays.toString(args));
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Platform vs virtual request threads in main-service when the thread pool, not the CPU, is the limit.
+#
+# Needs Postgres with the main-service database, a running stats-server and a published event. Every stats-server
+# call from main-service goes through a proxy that adds STATS_DELAY_MS, and Tomcat gets TOMCAT_THREADS platform
+# threads, so platform mode tops out near TOMCAT_THREADS / latency while virtual mode is not bound by the pool.
+# Open-session-in-view is off by default here: with it on, every request keeps its JDBC connection across the
+# stats-server calls and the Hikari pool caps both modes at the same rate (GET /events/{id} loads only eager
+# associations, so it doesn't need the open session).
+# StatsClient's connection pool is raised for the same reason; at its default of 64 it becomes the next limit.
+#
+#   EVENT_ID=1 stats/stats-bench/virtual-threads-load.sh
+set -euo pipefail
+
+cd "$(dirname "$0")/../.."
+
+EVENT_ID=${EVENT_ID:?set EVENT_ID to a published event}
+STATS_URL=${STATS_URL:-http://localhost:9090}
+DB_URL=${DB_URL:-jdbc:postgresql://localhost:5432/ewm_db}
+STATS_DELAY_MS=${STATS_DELAY_MS:-200}
+PROXY_PORT=${PROXY_PORT:-9099}
+TOMCAT_THREADS=${TOMCAT_THREADS:-16}
+CLIENTS=${CLIENTS:-200}
+SECONDS_PER_RUN=${SECONDS_PER_RUN:-30}
+MAIN_PORT=${MAIN_PORT:-8080}
+DEFAULT_MAIN_ARGS="--spring.jpa.open-in-view=false --spring.jpa.show-sql=false --stats-server.pool.max-connections=1000"
+MAIN_ARGS=${MAIN_ARGS:-$DEFAULT_MAIN_ARGS}
+
+mvn -B -q package -DskipTests -pl main-service,stats/stats-bench -am
+BENCH_CLASSES=stats/stats-bench/target/classes
+
+java -cp "$BENCH_CLASSES" ru.practicum.bench.HttpLoad --proxy-port="$PROXY_PORT" --proxy-target="$STATS_URL" \
+    --proxy-delay-ms="$STATS_DELAY_MS" &
+PROXY_PID=$!
+MAIN_PID=
+trap 'kill $PROXY_PID ${MAIN_PID:-} 2>/dev/null || true' EXIT
+
+for VIRTUAL in false true; do
+    LOG=$(mktemp)
+    java -jar main-service/target/main-service-0.0.1-SNAPSHOT.jar --server.port="$MAIN_PORT" \
+        --spring.datasource.url="$DB_URL" --stats-server.url="http://localhost:$PROXY_PORT" \
+        --spring.threads.virtual.enabled="$VIRTUAL" --server.tomcat.threads.max="$TOMCAT_THREADS" \
+        --diagnostics.pinning-threshold=1ms $MAIN_ARGS > "$LOG" 2>&1 &
+    MAIN_PID=$!
+    until grep -q "Started MainService" "$LOG"; do
+        kill -0 "$MAIN_PID" || { cat "$LOG"; exit 1; }
+        sleep 1
+    done
+    echo "virtual threads: $VIRTUAL, tomcat threads: $TOMCAT_THREADS, stats-server latency: +${STATS_DELAY_MS}ms"
+    java -cp "$BENCH_CLASSES" ru.practicum.bench.HttpLoad --url="http://localhost:$MAIN_PORT/events/$EVENT_ID" \
+        --clients="$CLIENTS" --seconds="$SECONDS_PER_RUN"
+    echo "pinned virtual threads: $(grep -c "pinned for" "$LOG" || true)"
+    kill "$MAIN_PID"
+    wait "$MAIN_PID" 2>/dev/null || true
+    MAIN_PID=
+done
@@ -0,0 +1,6 @@
+package ru.practicum;
+
+public enum OverflowPolicy {
+    DROP,
+    BLOCK
+}
@@ -0,0 +1,45 @@
+package ru.practicum;
+
+import ru.practicum.sketch.HyperLogLog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+// Consistent-hash ring over the stats-server endpoints: each endpoint owns virtualNodes points derived from its url,
+// and a uri belongs to the first point at or after its hash, so adding an endpoint moves about 1/n of the uris
+final class ShardRing {
+    private final long[] points;
+    private final int[] owners;
+
+    ShardRing(List<String> endpoints, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes per shard must be positive");
+        }
+        long[][] entries = new long[endpoints.size() * virtualNodes][];
+        for (int shard = 0; shard < endpoints.size(); shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                entries[shard * virtualNodes + node] = new long[]{hash(endpoints.get(shard) + "#" + node), shard};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[entries.length];
+        this.owners = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    int shardOf(String uri) {
+        int index = Arrays.binarySearch(points, hash(uri));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    private static long hash(String value) {
+        return HyperLogLog.hash(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
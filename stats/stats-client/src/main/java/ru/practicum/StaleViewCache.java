@@ -0,0 +1,53 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Last view counts served per (uri, start, unique), kept as a bounded LRU to answer while stats-server is unavailable
+public class StaleViewCache {
+    private final int maxSize;
+    private final Map<Key, ViewStatsDto> views;
+
+    public StaleViewCache(int maxSize, MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.views = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ViewStatsDto> eldest) {
+                return size() > StaleViewCache.this.maxSize;
+            }
+        };
+        meterRegistry.gauge("stats.client.fallback.size", this, StaleViewCache::size);
+    }
+
+    public synchronized void put(Map<String, LocalDateTime> startsByUri, boolean unique, List<ViewStatsDto> stats) {
+        for (ViewStatsDto view : stats) {
+            LocalDateTime start = startsByUri.get(view.getUri());
+            if (start != null) {
+                views.put(new Key(view.getUri(), start, unique), view);
+            }
+        }
+    }
+
+    public synchronized List<ViewStatsDto> get(Map<String, LocalDateTime> startsByUri, boolean unique) {
+        List<ViewStatsDto> stats = new ArrayList<>();
+        startsByUri.forEach((uri, start) -> {
+            ViewStatsDto view = views.get(new Key(uri, start, unique));
+            if (view != null) {
+                stats.add(view);
+            }
+        });
+        return stats;
+    }
+
+    public synchronized int size() {
+        return views.size();
+    }
+
+    private record Key(String uri, LocalDateTime start, boolean unique) {
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Opens after a run of consecutive failures; once the open period ends a single probe is let through and its outcome
+// either closes the breaker or opens it again
+@Slf4j
+public class StatsCircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Map<State, Counter> transitionCounters = new EnumMap<>(State.class);
+    private final Counter rejectedCounter;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+    private boolean probing;
+
+    public StatsCircuitBreaker(int failureThreshold, Duration openDuration, MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        for (State target : State.values()) {
+            transitionCounters.put(target, meterRegistry.counter("stats.client.breaker.transitions",
+                    "state", target.name().toLowerCase()));
+        }
+        this.rejectedCounter = meterRegistry.counter("stats.client.breaker.rejected");
+        meterRegistry.gauge("stats.client.breaker.state", this, breaker -> breaker.getState().ordinal());
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probing) {
+            probing = true;
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        failures = 0;
+        probing = false;
+        if (state != State.CLOSED) {
+            transition(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        probing = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            openUntil = System.nanoTime() + openNanos;
+            transition(State.OPEN);
+        }
+    }
+
+    private void transition(State target) {
+        log.info("Stats circuit breaker {} -> {}, consecutive failures: {}", state, target, failures);
+        state = target;
+        transitionCounters.get(target).increment();
+    }
+}
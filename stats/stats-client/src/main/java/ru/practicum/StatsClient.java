@@ -1,71 +1,521 @@
 package ru.practicum;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.codec.StatsBinaryCodec;
+import ru.practicum.codec.StatsBinaryMessageConverter;
 import ru.practicum.util.DateTimeUtil;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 @Service
+@Slf4j
 public class StatsClient {
-    private final RestTemplate rest;
-    private final ObjectMapper objectMapper;
+    private final List<RestTemplate> shards;
+    private final ShardRing ring;
+    private final ExecutorService asyncExecutor;
+    private final ObjectReader viewStatsReader;
+    private final List<StatsHitBuffer> hitBuffers;
+    private final AtomicLongArray hitBackoffUntil;
+    private final Counter droppedHitsCounter;
+    private final Counter hitBackoffCounter;
+    private final WireFormat wireFormat;
+    private final Duration requestTimeout;
+    private final StatsCircuitBreaker breaker;
+    private final StaleViewCache staleViews;
+    private final ViewLookupCoalescer coalescer;
+    private final Counter openFallbackCounter;
+    private final Counter errorFallbackCounter;
+    private final Counter timeoutCounter;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(DateTimeUtil.DATE_PATTERN);
+    private static final String STATS_PATH = "/stats?start={start}&end={end}&unique={unique}";
+    private static final String URIS_QUERY = "&uris={uris}";
+    private static final int TOP_CANDIDATE_FACTOR = 2;
+    private static final int MAX_TOP_LIMIT = 1000;
+    private static final long MIN_HIT_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final String SKETCHES_PATH = "/stats/sketches?start={start}&end={end}";
+    private static final ParameterizedTypeReference<List<ViewStatsDto>> VIEW_STATS_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<List<ViewBucketDto>> VIEW_BUCKET_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<List<ViewSketchDto>> VIEW_SKETCH_LIST =
+            new ParameterizedTypeReference<>() {
+            };
 
 
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
-        this.rest = builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
-                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
-                .build();
-        this.objectMapper = new ObjectMapper();
+    public StatsClient(@Value("${stats-server.url}") String serverUrl,
+                       @Value("${stats-server.wire-format:JSON}") WireFormat wireFormat,
+                       @Value("${stats-server.buffer.enabled:false}") boolean bufferEnabled,
+                       @Value("${stats-server.buffer.capacity:10000}") int bufferCapacity,
+                       @Value("${stats-server.buffer.batch-size:500}") int batchSize,
+                       @Value("${stats-server.buffer.flush-interval:1s}") Duration flushInterval,
+                       @Value("${stats-server.buffer.overflow-policy:DROP}") OverflowPolicy overflowPolicy,
+                       @Value("${stats-server.buffer.block-timeout:100ms}") Duration blockTimeout,
+                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                       @Value("${stats-server.timeout.connect:500ms}") Duration connectTimeout,
+                       @Value("${stats-server.timeout.read:2s}") Duration readTimeout,
+                       @Value("${stats-server.timeout.request:2s}") Duration requestTimeout,
+                       @Value("${stats-server.pool.max-connections:64}") int maxConnections,
+                       @Value("${stats-server.pool.keep-alive:30s}") Duration keepAlive,
+                       @Value("${stats-server.breaker.enabled:false}") boolean breakerEnabled,
+                       @Value("${stats-server.breaker.failure-threshold:5}") int failureThreshold,
+                       @Value("${stats-server.breaker.open-duration:10s}") Duration openDuration,
+                       @Value("${stats-server.breaker.fallback-size:10000}") int fallbackSize,
+                       @Value("${stats-server.coalescing.enabled:false}") boolean coalescingEnabled,
+                       @Value("${stats-server.coalescing.window:5ms}") Duration coalescingWindow,
+                       @Value("${stats-server.coalescing.max-batch:100}") int coalescingMaxBatch,
+                       @Value("${stats-server.shards:}") List<String> shardUrls,
+                       @Value("${stats-server.sharding.virtual-nodes:128}") int virtualNodes,
+                       RestTemplateBuilder builder,
+                       MeterRegistry meterRegistry) {
+        List<String> endpoints = shardUrls.isEmpty() ? List.of(serverUrl) : List.copyOf(shardUrls);
+        this.shards = endpoints.stream()
+                .map(url -> restTemplate(builder, url, connectTimeout, readTimeout, maxConnections, keepAlive))
+                .toList();
+        this.ring = endpoints.size() > 1 ? new ShardRing(endpoints, virtualNodes) : null;
+        this.asyncExecutor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool(Thread.ofPlatform().daemon().name("stats-async-", 0).factory());
+        if (ring != null) {
+            log.info("Sharding stats across {}", endpoints);
+        }
+        this.wireFormat = wireFormat;
+        this.requestTimeout = requestTimeout;
+        this.viewStatsReader = new ObjectMapper().readerFor(ViewStatsDto.class);
+        this.hitBuffers = !bufferEnabled ? List.of() : IntStream.range(0, shards.size())
+                .mapToObj(shard -> new StatsHitBuffer(bufferCapacity, batchSize, flushInterval, overflowPolicy,
+                        blockTimeout, virtualThreads, hits -> sendHits(shards.get(shard), hits),
+                        ring == null ? Tags.empty() : Tags.of("shard", String.valueOf(shard)), meterRegistry))
+                .toList();
+        this.breaker = breakerEnabled ? new StatsCircuitBreaker(failureThreshold, openDuration, meterRegistry) : null;
+        this.staleViews = breakerEnabled ? new StaleViewCache(fallbackSize, meterRegistry) : null;
+        this.coalescer = coalescingEnabled
+                ? new ViewLookupCoalescer(coalescingWindow, coalescingMaxBatch, this::loadViews, meterRegistry)
+                : null;
+        this.openFallbackCounter = meterRegistry.counter("stats.client.fallbacks", "reason", "open");
+        this.errorFallbackCounter = meterRegistry.counter("stats.client.fallbacks", "reason", "error");
+        this.timeoutCounter = meterRegistry.counter("stats.client.timeouts");
+        this.hitBackoffUntil = new AtomicLongArray(shards.size());
+        IntStream.range(0, shards.size()).forEach(shard -> hitBackoffUntil.set(shard, System.nanoTime()));
+        this.droppedHitsCounter = meterRegistry.counter("stats.client.hits.dropped");
+        this.hitBackoffCounter = meterRegistry.counter("stats.client.backoffs");
     }
 
     public void saveHit(EndpointHitSaveDto hitSaveDto) {
-        makeAndSendRequest(HttpMethod.POST, "/hit", null, hitSaveDto);
+        ResponseEntity<Object> response = withinDeadline(() -> makeAndSendRequest(
+                shards.get(shardOf(hitSaveDto.getUri())), HttpMethod.POST, "/hit", null, hitSaveDto,
+                defaultHeaders()));
+        checkAccepted(response);
+    }
+
+    public void saveHits(List<EndpointHitSaveDto> hitSaveDtos) {
+        if (ring == null) {
+            sendHits(shards.getFirst(), hitSaveDtos);
+            return;
+        }
+        Map<Integer, List<EndpointHitSaveDto>> byShard = new LinkedHashMap<>();
+        hitSaveDtos.forEach(hit -> byShard.computeIfAbsent(shardOf(hit.getUri()), shard -> new ArrayList<>()).add(hit));
+        byShard.forEach((shard, hits) -> sendHits(shards.get(shard), hits));
+    }
+
+    private void sendHits(RestTemplate rest, List<EndpointHitSaveDto> hitSaveDtos) {
+        if (hitSaveDtos.isEmpty()) {
+            return;
+        }
+        HttpHeaders headers = defaultHeaders();
+        if (wireFormat == WireFormat.BINARY) {
+            headers.setContentType(StatsBinaryCodec.MEDIA_TYPE);
+        }
+        checkAccepted(makeAndSendRequest(rest, HttpMethod.POST, "/hits", null, hitSaveDtos, headers));
+    }
+
+    private static void checkAccepted(ResponseEntity<Object> response) {
+        if (isOverloaded(response.getStatusCode())) {
+            throw new StatsOverloadedException("Stats service is overloaded, status " + response.getStatusCode(),
+                    retryAfter(response.getHeaders()));
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IllegalStateException("Stats service rejected hits with status " + response.getStatusCode());
+        }
+    }
+
+    public void recordHit(EndpointHitSaveDto hitSaveDto) {
+        if (hitBuffers.isEmpty()) {
+            sendHit(hitSaveDto);
+            return;
+        }
+        hitBuffers.get(shardOf(hitSaveDto.getUri())).offer(hitSaveDto);
+    }
+
+    // Unbuffered hits can't wait for the server, so an overloaded shard's hits are dropped until its Retry-After
+    // has passed instead of adding a request each. Like the buffer, a hit that fails or runs past the deadline is
+    // dropped rather than failing the request that recorded it
+    private void sendHit(EndpointHitSaveDto hitSaveDto) {
+        int shard = shardOf(hitSaveDto.getUri());
+        if (System.nanoTime() - hitBackoffUntil.get(shard) < 0) {
+            droppedHitsCounter.increment();
+            return;
+        }
+        try {
+            saveHit(hitSaveDto);
+        } catch (StatsOverloadedException e) {
+            long pause = Math.max(MIN_HIT_BACKOFF_NANOS, e.getRetryAfter().toNanos());
+            hitBackoffUntil.set(shard, System.nanoTime() + pause);
+            hitBackoffCounter.increment();
+            droppedHitsCounter.increment();
+            log.debug("Stats server is overloaded, dropping hits for {} ms", TimeUnit.NANOSECONDS.toMillis(pause));
+        } catch (RuntimeException e) {
+            droppedHitsCounter.increment();
+            log.warn("Failed to send hit to stats server: {}", e.getMessage());
+        }
+    }
+
+    public List<StatsHitBuffer> getHitBuffers() {
+        return hitBuffers;
+    }
+
+    @PreDestroy
+    public void close() {
+        hitBuffers.forEach(StatsHitBuffer::close);
+        asyncExecutor.shutdownNow();
+    }
+
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris,
+                                       Boolean unique) {
+        String urisQuery = uris == null ? "" : URIS_QUERY;
+        return gatherViewStats(HttpMethod.GET, STATS_PATH + urisQuery, SKETCHES_PATH + urisQuery,
+                statsParameters(start, end, uris, unique), null, Boolean.TRUE.equals(unique));
+    }
+
+    // The async variants run the blocking calls above on a shared executor (virtual threads when enabled), so they
+    // go through the same shard ring, breaker, stale fallback and overload handling
+    public CompletableFuture<Void> saveHitAsync(EndpointHitSaveDto hitSaveDto) {
+        return CompletableFuture.runAsync(() -> saveHit(hitSaveDto), asyncExecutor);
     }
 
-    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    public CompletableFuture<List<ViewStatsDto>> getStatsAsync(LocalDateTime start, LocalDateTime end,
+                                                               @Nullable List<String> uris, Boolean unique) {
+        return CompletableFuture.supplyAsync(() -> getStats(start, end, uris, unique), asyncExecutor);
+    }
+
+    public CompletableFuture<ViewsResult> getViewsAsync(Map<String, LocalDateTime> startsByUri, LocalDateTime end,
+                                                        boolean unique) {
+        return CompletableFuture.supplyAsync(() -> getViews(startsByUri, end, unique), asyncExecutor);
+    }
+
+    // Waits for all lookups under one deadline; on the first failure or at the deadline the rest are cancelled
+    public static <T> List<T> joinAll(List<CompletableFuture<T>> futures, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (TimeoutException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new StatsUnavailableException("Stats lookups did not complete within " + timeout.toMillis()
+                    + " ms");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e.getCause() instanceof RuntimeException cause ? cause
+                    : new StatsUnavailableException("Stats lookup failed: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new StatsUnavailableException("Interrupted while waiting for stats lookups", e);
+        }
+    }
+
+    public void streamStats(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris, Boolean unique,
+                            Consumer<ViewStatsDto> consumer) {
+        if (ring != null) {
+            getStats(start, end, uris, unique).forEach(consumer);
+            return;
+        }
+        // A stream runs as long as the result does, so only the read timeout between chunks bounds it
+        guarded(() -> {
+            doStreamStats(start, end, uris, unique, consumer);
+            return null;
+        }, false);
+    }
+
+    private void doStreamStats(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris, Boolean unique,
+                               Consumer<ViewStatsDto> consumer) {
+        try {
+            shards.getFirst().execute(uris == null ? STATS_PATH : STATS_PATH + URIS_QUERY, HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(
+                            List.of(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON)),
+                    response -> {
+                        try (MappingIterator<ViewStatsDto> iterator = viewStatsReader.readValues(response.getBody())) {
+                            while (iterator.hasNextValue()) {
+                                consumer.accept(iterator.nextValue());
+                            }
+                        }
+                        return null;
+                    },
+                    statsParameters(start, end, uris, unique));
+        } catch (HttpStatusCodeException e) {
+            throw statusException(e);
+        }
+    }
+
+    public ViewsResult getViews(Map<String, LocalDateTime> startsByUri, LocalDateTime end, boolean unique) {
+        if (startsByUri.isEmpty()) {
+            return new ViewsResult(List.of(), false);
+        }
+        return coalescer != null
+                ? coalescer.getViews(startsByUri, end, unique)
+                : loadViews(startsByUri, end, unique);
+    }
+
+    private ViewsResult loadViews(Map<String, LocalDateTime> startsByUri, LocalDateTime end, boolean unique) {
+        List<UriStartDto> uris = startsByUri.entrySet().stream()
+                .map(entry -> new UriStartDto(entry.getKey(), entry.getValue()))
+                .toList();
+        List<ViewStatsDto> stats;
+        try {
+            stats = gatherViewStats(HttpMethod.POST, "/stats/views", "/stats/views/sketches", null,
+                    new ViewsRequestDto(uris, end, unique), unique);
+        } catch (StatsUnavailableException e) {
+            if (staleViews == null) {
+                throw e;
+            }
+            (e instanceof CircuitOpenException ? openFallbackCounter : errorFallbackCounter).increment();
+            log.debug("Serving stale views for {} uris: {}", startsByUri.size(), e.getMessage());
+            return new ViewsResult(staleViews.get(startsByUri, unique), true);
+        }
+        if (staleViews != null) {
+            staleViews.put(startsByUri, unique, stats);
+        }
+        return new ViewsResult(stats, false);
+    }
+
+    @Nullable
+    public StatsCircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    public List<ViewBucketDto> getTimeSeries(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                             String bucket) {
         Map<String, Object> parameters = Map.of(
                 "start", start.format(FORMATTER),
                 "end", end.format(FORMATTER),
                 "uris", String.join(",", uris),
-                "unique", unique);
-        ResponseEntity<Object> responseEntity = makeAndSendRequest(
-                HttpMethod.GET,
-                "/stats?start={start}&end={end}&uris={uris}&unique={unique}",
-                parameters,
-                null
-        );
+                "bucket", bucket);
+        String path = "/stats/timeseries?start={start}&end={end}&uris={uris}&bucket={bucket}";
+        if (ring == null) {
+            return guarded(() -> doExchange(shards.getFirst(), HttpMethod.GET, path, parameters, null,
+                    defaultHeaders(), VIEW_BUCKET_LIST));
+        }
+        return guarded(() -> StatsShardMerger.sumBuckets(scatter(shard -> doExchange(shard, HttpMethod.GET, path,
+                parameters, null, defaultHeaders(), VIEW_BUCKET_LIST))));
+    }
+
+    public List<ViewStatsDto> getTopStats(LocalDateTime start, LocalDateTime end, int limit,
+                                          @Nullable String app, @Nullable String uriPrefix, boolean unique) {
+        StringBuilder path = new StringBuilder("/stats/top?start={start}&end={end}&limit={limit}&unique={unique}");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("start", start.format(FORMATTER));
+        parameters.put("end", end.format(FORMATTER));
+        parameters.put("limit", limit);
+        parameters.put("unique", Boolean.TRUE.equals(unique));
+        if (app != null) {
+            path.append("&app={app}");
+            parameters.put("app", app);
+        }
+        if (uriPrefix != null) {
+            path.append("&uriPrefix={uriPrefix}");
+            parameters.put("uriPrefix", uriPrefix);
+        }
+        if (ring == null) {
+            return exchangeViewStats(HttpMethod.GET, path.toString(), parameters, null);
+        }
+        parameters.put("limit", Math.min(limit * TOP_CANDIDATE_FACTOR, MAX_TOP_LIMIT));
+        Set<String> candidates = new LinkedHashSet<>();
+        guarded(() -> scatter(shard -> doExchangeViewStats(shard, HttpMethod.GET, path.toString(), parameters, null)))
+                .forEach(top -> top.forEach(stat -> candidates.add(stat.getUri())));
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        List<UriStartDto> uris = candidates.stream().map(uri -> new UriStartDto(uri, start)).toList();
+        return gatherViewStats(HttpMethod.POST, "/stats/views", "/stats/views/sketches", null,
+                new ViewsRequestDto(uris, end, unique), unique).stream()
+                .filter(stat -> app == null || app.equals(stat.getApp()))
+                .limit(limit)
+                .toList();
+    }
+
+    private static Map<String, Object> statsParameters(LocalDateTime start, LocalDateTime end,
+                                                       @Nullable List<String> uris, Boolean unique) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("start", start.format(FORMATTER));
+        parameters.put("end", end.format(FORMATTER));
+        parameters.put("unique", Boolean.TRUE.equals(unique));
+        if (uris != null) {
+            parameters.put("uris", String.join(",", uris));
+        }
+        return parameters;
+    }
+
+    private List<ViewStatsDto> exchangeViewStats(HttpMethod method, String path,
+                                                 @Nullable Map<String, Object> parameters, @Nullable Object body) {
+        return guarded(() -> doExchangeViewStats(shards.getFirst(), method, path, parameters, body));
+    }
+
+    private List<ViewStatsDto> gatherViewStats(HttpMethod method, String path, String sketchPath,
+                                               @Nullable Map<String, Object> parameters, @Nullable Object body,
+                                               boolean unique) {
+        if (ring == null) {
+            return exchangeViewStats(method, path, parameters, body);
+        }
+        if (unique) {
+            return guarded(() -> StatsShardMerger.mergeSketches(scatter(shard -> doExchange(shard, method, sketchPath,
+                    parameters, body, defaultHeaders(), VIEW_SKETCH_LIST))));
+        }
+        return guarded(() -> StatsShardMerger.sumCounts(scatter(shard -> doExchangeViewStats(shard, method, path,
+                parameters, body))));
+    }
+
+    private <T> List<T> scatter(Function<RestTemplate, T> call) {
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> call.apply(shard), asyncExecutor))
+                .toList();
+        return joinAll(futures, requestTimeout);
+    }
+
+    private int shardOf(String uri) {
+        return ring == null ? 0 : ring.shardOf(uri);
+    }
+
+    private <T> T guarded(Supplier<T> call) {
+        return guarded(call, true);
+    }
+
+    private <T> T guarded(Supplier<T> call, boolean bounded) {
+        Supplier<T> request = bounded ? () -> withinDeadline(call) : call;
+        if (breaker == null) {
+            return request.get();
+        }
+        if (!breaker.tryAcquire()) {
+            throw new CircuitOpenException();
+        }
+        try {
+            T result = request.get();
+            breaker.onSuccess();
+            return result;
+        } catch (StatsUnavailableException e) {
+            breaker.onFailure();
+            throw e;
+        } catch (ResourceAccessException e) {
+            breaker.onFailure();
+            throw new StatsUnavailableException("Stats service is unreachable: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            breaker.onSuccess();
+            throw e;
+        }
+    }
+
+    // The response timeout restarts on every read, and connect, lease and read waits add up, so the whole call gets
+    // one budget. An interrupted virtual thread closes its socket; a platform thread finishes at the read timeout
+    private <T> T withinDeadline(Supplier<T> call) {
+        Future<T> future = asyncExecutor.submit(call::get);
         try {
-            if (responseEntity.getBody() == null) {
-                throw new IllegalStateException("Empty response body from stats service");
+            return future.get(requestTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeoutCounter.increment();
+            throw new StatsUnavailableException("Stats request exceeded " + requestTimeout.toMillis() + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
-            return objectMapper.readValue(
-                    objectMapper.writeValueAsString(responseEntity.getBody()), new TypeReference<>() {
-                    }
-            );
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to process stats response");
+            throw new StatsUnavailableException("Stats request failed: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new StatsUnavailableException("Interrupted while waiting for stats service", e);
         }
     }
 
-    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path,
-                                                          @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders());
+    private List<ViewStatsDto> doExchangeViewStats(RestTemplate rest, HttpMethod method, String path,
+                                                   @Nullable Map<String, Object> parameters, @Nullable Object body) {
+        HttpHeaders headers = defaultHeaders();
+        if (wireFormat == WireFormat.BINARY) {
+            headers.setAccept(List.of(StatsBinaryCodec.MEDIA_TYPE, MediaType.APPLICATION_JSON));
+        }
+        return doExchange(rest, method, path, parameters, body, headers, VIEW_STATS_LIST);
+    }
+
+    private static <T> List<T> doExchange(RestTemplate rest, HttpMethod method, String path,
+                                          @Nullable Map<String, Object> parameters, @Nullable Object body,
+                                          HttpHeaders headers, ParameterizedTypeReference<List<T>> type) {
+        HttpEntity<Object> requestEntity = new HttpEntity<>(body, headers);
+        List<T> result;
+        try {
+            if (parameters != null) {
+                result = rest.exchange(path, method, requestEntity, type, parameters).getBody();
+            } else {
+                result = rest.exchange(path, method, requestEntity, type).getBody();
+            }
+        } catch (HttpStatusCodeException e) {
+            throw statusException(e);
+        }
+        if (result == null) {
+            throw new IllegalStateException("Empty response body from stats service");
+        }
+        return result;
+    }
+
+    private <T> ResponseEntity<Object> makeAndSendRequest(RestTemplate rest, HttpMethod method, String path,
+                                                          @Nullable Map<String, Object> parameters, @Nullable T body,
+                                                          HttpHeaders headers) {
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, headers);
 
         ResponseEntity<Object> statsServerResponse;
         try {
@@ -75,11 +525,74 @@ public class StatsClient {
                 statsServerResponse = rest.exchange(path, method, requestEntity, Object.class);
             }
         } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+            return ResponseEntity.status(e.getStatusCode())
+                    .headers(e.getResponseHeaders())
+                    .body(e.getResponseBodyAsByteArray());
         }
         return processStatsResponse(statsServerResponse);
     }
 
+    private static IllegalStateException statusException(HttpStatusCodeException e) {
+        if (isOverloaded(e.getStatusCode())) {
+            return new StatsOverloadedException("Stats service is overloaded, status " + e.getStatusCode(),
+                    retryAfter(e.getResponseHeaders()));
+        }
+        if (e.getStatusCode().is5xxServerError()) {
+            return new StatsUnavailableException("Stats service responded with status " + e.getStatusCode(), e);
+        }
+        return new IllegalStateException("Stats service responded with status " + e.getStatusCode(), e);
+    }
+
+    private static boolean isOverloaded(HttpStatusCode status) {
+        return status.value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                || status.value() == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    private static Duration retryAfter(@Nullable HttpHeaders headers) {
+        String value = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value != null) {
+            try {
+                return Duration.ofSeconds(Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                return Duration.ZERO;
+            }
+        }
+        return Duration.ZERO;
+    }
+
+    // The pool replaces HttpClient's default of 5 connections per route, which serialised concurrent lookups.
+    // The stale check is off: HttpClient 5.3 runs its socket read inside a synchronized lease, which pins virtual
+    // threads, and the keep-alive below already retires connections before the server's idle timeout closes them
+    private static RestTemplate restTemplate(RestTemplateBuilder builder, String url, Duration connectTimeout,
+                                             Duration readTimeout, int maxConnections, Duration keepAlive) {
+        RestTemplate rest = builder
+                .uriTemplateHandler(new DefaultUriBuilderFactory(url))
+                .requestFactory(() -> {
+                    HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(
+                            HttpClients.custom()
+                                    .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                                            .setMaxConnTotal(maxConnections)
+                                            .setMaxConnPerRoute(maxConnections)
+                                            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                                    .setTimeToLive(TimeValue.of(keepAlive))
+                                                    .setValidateAfterInactivity(TimeValue.NEG_ONE_MILLISECOND)
+                                                    .build())
+                                            .build())
+                                    .setKeepAliveStrategy((response, context) -> TimeValue.of(keepAlive))
+                                    .evictIdleConnections(TimeValue.of(keepAlive))
+                                    .setDefaultRequestConfig(RequestConfig.custom()
+                                            .setResponseTimeout(Timeout.of(readTimeout))
+                                            .build())
+                                    .build());
+                    factory.setConnectionRequestTimeout(connectTimeout);
+                    factory.setConnectTimeout(connectTimeout);
+                    return factory;
+                })
+                .build();
+        rest.getMessageConverters().add(new StatsBinaryMessageConverter());
+        return rest;
+    }
+
     private HttpHeaders defaultHeaders() {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
@@ -87,6 +600,12 @@ public class StatsClient {
         return headers;
     }
 
+    private static class CircuitOpenException extends StatsUnavailableException {
+        CircuitOpenException() {
+            super("Stats circuit breaker is open");
+        }
+    }
+
     private static ResponseEntity<Object> processStatsResponse(ResponseEntity<Object> response) {
         if (response.getStatusCode().is2xxSuccessful()) {
             return response;
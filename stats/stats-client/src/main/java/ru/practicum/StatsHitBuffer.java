@@ -0,0 +1,167 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Slf4j
+public class StatsHitBuffer implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final BlockingQueue<EndpointHitSaveDto> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final Consumer<List<EndpointHitSaveDto>> sender;
+    private final Counter queuedCounter;
+    private final Counter sentCounter;
+    private final Counter droppedCounter;
+    private final Counter backoffCounter;
+    private final Thread flusher;
+    private volatile boolean running = true;
+    private long backoffNanos;
+    private long backoffUntil;
+
+    public StatsHitBuffer(int capacity, int batchSize, Duration flushInterval, OverflowPolicy overflowPolicy,
+                          Duration blockTimeout, boolean virtualThread, Consumer<List<EndpointHitSaveDto>> sender,
+                          Tags tags, MeterRegistry meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+        this.sender = sender;
+        this.queuedCounter = meterRegistry.counter("stats.client.hits.queued", tags);
+        this.sentCounter = meterRegistry.counter("stats.client.hits.sent", tags);
+        this.droppedCounter = meterRegistry.counter("stats.client.hits.dropped", tags);
+        this.backoffCounter = meterRegistry.counter("stats.client.backoffs", tags);
+        Gauge.builder("stats.client.buffer.size", queue, BlockingQueue::size).tags(tags).register(meterRegistry);
+        Thread.Builder threads = virtualThread ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        this.flusher = threads
+                .name("stats-hit-flusher")
+                .start(this::runFlusher);
+    }
+
+    public boolean offer(EndpointHitSaveDto hit) {
+        boolean accepted;
+        if (!running) {
+            accepted = false;
+        } else if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                accepted = queue.offer(hit, blockTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        } else {
+            accepted = queue.offer(hit);
+        }
+
+        if (accepted) {
+            queuedCounter.increment();
+        } else {
+            droppedCounter.increment();
+            log.debug("Stats buffer is full, hit dropped: {}", hit);
+        }
+        return accepted;
+    }
+
+    public long getQueuedCount() {
+        return (long) queuedCounter.count();
+    }
+
+    public long getSentCount() {
+        return (long) sentCounter.count();
+    }
+
+    public long getDroppedCount() {
+        return (long) droppedCounter.count();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Stats buffer closed with {} unsent hits", queue.size());
+        }
+    }
+
+    private void runFlusher() {
+        List<EndpointHitSaveDto> batch = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (running || !queue.isEmpty()) {
+            long pause = backoffUntil - System.nanoTime();
+            if (running && pause > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(pause);
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+                continue;
+            }
+            if (batch.size() < batchSize) {
+                try {
+                    long wait = deadline - System.nanoTime();
+                    EndpointHitSaveDto hit = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (hit != null) {
+                        batch.add(hit);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+            }
+            if (batch.size() >= batchSize || System.nanoTime() >= deadline || !running) {
+                flush(batch);
+                deadline = System.nanoTime() + flushIntervalNanos;
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<EndpointHitSaveDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            sender.accept(List.copyOf(batch));
+            sentCounter.increment(batch.size());
+            backoffNanos = 0;
+            log.debug("Flushed {} hits to stats server", batch.size());
+        } catch (StatsOverloadedException e) {
+            if (running) {
+                backoffNanos = backoffNanos == 0 ? flushIntervalNanos : Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+                long pause = Math.max(backoffNanos, e.getRetryAfter().toNanos());
+                backoffUntil = System.nanoTime() + pause;
+                backoffCounter.increment();
+                log.debug("Stats server is overloaded, keeping {} hits for {} ms", batch.size(),
+                        TimeUnit.NANOSECONDS.toMillis(pause));
+                return;
+            }
+            droppedCounter.increment(batch.size());
+            log.warn("Failed to flush {} hits to overloaded stats server on close", batch.size());
+        } catch (RuntimeException e) {
+            droppedCounter.increment(batch.size());
+            log.warn("Failed to flush {} hits to stats server: {}", batch.size(), e.getMessage());
+        }
+        batch.clear();
+    }
+}
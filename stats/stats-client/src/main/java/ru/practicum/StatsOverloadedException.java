@@ -0,0 +1,15 @@
+package ru.practicum;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class StatsOverloadedException extends StatsUnavailableException {
+    private final Duration retryAfter;
+
+    public StatsOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
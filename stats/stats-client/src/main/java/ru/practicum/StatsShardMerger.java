@@ -0,0 +1,66 @@
+package ru.practicum;
+
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Gathers per-shard answers; a uri's hits can sit on several shards after the ring changes, so counts are summed
+// and unique-IP sketches are merged before estimating
+final class StatsShardMerger {
+    private static final Comparator<ViewStatsDto> BY_HITS = Comparator.comparing(ViewStatsDto::getHits).reversed()
+            .thenComparing(ViewStatsDto::getUri)
+            .thenComparing(ViewStatsDto::getApp);
+
+    private StatsShardMerger() {
+    }
+
+    static List<ViewStatsDto> sumCounts(List<List<ViewStatsDto>> shards) {
+        Map<ViewKey, Long> counts = new LinkedHashMap<>();
+        for (List<ViewStatsDto> stats : shards) {
+            stats.forEach(stat -> counts.merge(new ViewKey(stat.getApp(), stat.getUri()), stat.getHits(), Long::sum));
+        }
+        return counts.entrySet().stream()
+                .map(entry -> new ViewStatsDto(entry.getKey().app(), entry.getKey().uri(), entry.getValue()))
+                .sorted(BY_HITS)
+                .toList();
+    }
+
+    static List<ViewStatsDto> mergeSketches(List<List<ViewSketchDto>> shards) {
+        Map<ViewKey, HyperLogLog> sketches = new LinkedHashMap<>();
+        for (List<ViewSketchDto> shard : shards) {
+            for (ViewSketchDto sketch : shard) {
+                sketches.computeIfAbsent(new ViewKey(sketch.getApp(), sketch.getUri()), key -> new HyperLogLog())
+                        .merge(HyperLogLog.fromBytes(sketch.getRegisters()));
+            }
+        }
+        return sketches.entrySet().stream()
+                .map(entry -> new ViewStatsDto(entry.getKey().app(), entry.getKey().uri(), entry.getValue().estimate()))
+                .sorted(BY_HITS)
+                .toList();
+    }
+
+    static List<ViewBucketDto> sumBuckets(List<List<ViewBucketDto>> shards) {
+        Map<BucketKey, Long> counts = new LinkedHashMap<>();
+        for (List<ViewBucketDto> buckets : shards) {
+            buckets.forEach(bucket -> counts.merge(
+                    new BucketKey(bucket.getApp(), bucket.getUri(), bucket.getBucket()), bucket.getHits(), Long::sum));
+        }
+        return counts.entrySet().stream()
+                .map(entry -> new ViewBucketDto(entry.getKey().app(), entry.getKey().uri(), entry.getKey().bucket(),
+                        entry.getValue()))
+                .sorted(Comparator.comparing(ViewBucketDto::getUri)
+                        .thenComparing(ViewBucketDto::getApp)
+                        .thenComparing(ViewBucketDto::getBucket))
+                .toList();
+    }
+
+    private record ViewKey(String app, String uri) {
+    }
+
+    private record BucketKey(String app, String uri, LocalDateTime bucket) {
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum;
+
+public class StatsUnavailableException extends IllegalStateException {
+    public StatsUnavailableException(String message) {
+        super(message);
+    }
+
+    public StatsUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
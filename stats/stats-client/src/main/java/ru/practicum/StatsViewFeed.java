@@ -0,0 +1,94 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Reads the stats-server view update stream: server-sent events, each carrying a JSON array of updates.
+// Offsets and counters are per server, so the feed refuses to run against more than one shard rather than
+// silently missing the uris the other shards own
+@Service
+@ConditionalOnProperty(name = "stats-server.feed.enabled", havingValue = "true")
+public class StatsViewFeed {
+    private final RestTemplate rest;
+    private final ObjectReader updatesReader = new ObjectMapper().readerForListOf(ViewUpdateDto.class);
+
+    public StatsViewFeed(@Value("${stats-server.url}") String serverUrl,
+                         @Value("${stats-server.shards:}") List<String> shardUrls,
+                         @Value("${stats-server.timeout.connect:500ms}") Duration connectTimeout,
+                         @Value("${stats-server.feed.idle-timeout:30s}") Duration idleTimeout,
+                         RestTemplateBuilder builder) {
+        if (shardUrls.size() > 1) {
+            throw new IllegalStateException("stats-server.feed.enabled is not supported with stats-server.shards "
+                    + shardUrls + ": the feed would only see the uris owned by one shard");
+        }
+        String url = shardUrls.isEmpty() ? serverUrl : shardUrls.getFirst();
+        this.rest = builder
+                .uriTemplateHandler(new DefaultUriBuilderFactory(url))
+                .requestFactory(() -> {
+                    HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(
+                            HttpClients.custom()
+                                    .setDefaultRequestConfig(RequestConfig.custom()
+                                            .setResponseTimeout(Timeout.of(idleTimeout))
+                                            .build())
+                                    .build());
+                    factory.setConnectTimeout(connectTimeout);
+                    return factory;
+                })
+                .build();
+    }
+
+    public void stream(long after, @Nullable String uriPrefix, Consumer<List<ViewUpdateDto>> consumer) {
+        StringBuilder path = new StringBuilder("/views/updates?after={after}");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("after", after);
+        if (uriPrefix != null) {
+            path.append("&uriPrefix={uriPrefix}");
+            parameters.put("uriPrefix", uriPrefix);
+        }
+        try {
+            rest.execute(path.toString(), HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM)),
+                    response -> {
+                        BufferedReader reader = new BufferedReader(
+                                new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+                        StringBuilder data = new StringBuilder();
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (line.isEmpty() && !data.isEmpty()) {
+                                consumer.accept(updatesReader.readValue(data.toString()));
+                                data.setLength(0);
+                            } else if (line.startsWith("data:")) {
+                                data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+                            }
+                        }
+                        return null;
+                    },
+                    parameters);
+        } catch (HttpStatusCodeException e) {
+            throw new IllegalStateException("Stats view feed responded with status " + e.getStatusCode(), e);
+        }
+    }
+}
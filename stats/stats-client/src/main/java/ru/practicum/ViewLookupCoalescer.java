@@ -0,0 +1,167 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Identical (uri, start, unique) lookups share one in-flight request; distinct ones arriving within the window join an
+// open batch, which the caller that opened it sends as a single /stats/views call once the window ends or it fills up
+class ViewLookupCoalescer {
+    private final long windowNanos;
+    private final int maxBatch;
+    private final ViewsLoader loader;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Key, Batch> inFlight = new HashMap<>();
+    private final Map<Boolean, Batch> open = new HashMap<>();
+    private final Counter lookupCounter;
+    private final Counter sharedCounter;
+    private final Counter requestCounter;
+    private final DistributionSummary batchSizes;
+
+    ViewLookupCoalescer(Duration window, int maxBatch, ViewsLoader loader, MeterRegistry meterRegistry) {
+        this.windowNanos = window.toNanos();
+        this.maxBatch = maxBatch;
+        this.loader = loader;
+        this.lookupCounter = meterRegistry.counter("stats.client.coalescing.lookups");
+        this.sharedCounter = meterRegistry.counter("stats.client.coalescing.shared");
+        this.requestCounter = meterRegistry.counter("stats.client.coalescing.requests");
+        this.batchSizes = meterRegistry.summary("stats.client.coalescing.batch.size");
+        meterRegistry.gauge("stats.client.coalescing.ratio", this, coalescer -> coalescer.requestCounter.count() == 0
+                ? 1.0 : coalescer.lookupCounter.count() / coalescer.requestCounter.count());
+    }
+
+    ViewsResult getViews(Map<String, LocalDateTime> startsByUri, LocalDateTime end, boolean unique) {
+        Map<String, Batch> batchesByUri = new LinkedHashMap<>();
+        List<Batch> led = new ArrayList<>();
+        lock.lock();
+        try {
+            lookupCounter.increment(startsByUri.size());
+            startsByUri.forEach((uri, start) -> {
+                Key key = new Key(uri, start, unique);
+                Batch batch = inFlight.get(key);
+                if (batch != null) {
+                    sharedCounter.increment();
+                } else {
+                    batch = open.get(unique);
+                    if (batch == null || batch.startsByUri.containsKey(uri)) {
+                        if (batch != null) {
+                            seal(batch);
+                        }
+                        batch = new Batch(unique);
+                        open.put(unique, batch);
+                        led.add(batch);
+                    }
+                    batch.startsByUri.put(uri, start);
+                    if (end.isAfter(batch.end)) {
+                        batch.end = end;
+                    }
+                    inFlight.put(key, batch);
+                    if (batch.startsByUri.size() >= maxBatch) {
+                        seal(batch);
+                    }
+                }
+                batchesByUri.put(uri, batch);
+            });
+        } finally {
+            lock.unlock();
+        }
+        led.forEach(this::awaitAndSend);
+
+        List<ViewStatsDto> stats = new ArrayList<>();
+        boolean stale = false;
+        for (Map.Entry<String, Batch> entry : batchesByUri.entrySet()) {
+            Loaded loaded;
+            try {
+                loaded = entry.getValue().result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            ViewStatsDto view = loaded.viewsByUri.get(entry.getKey());
+            if (view != null) {
+                stats.add(view);
+            }
+            stale |= loaded.stale;
+        }
+        return new ViewsResult(stats, stale);
+    }
+
+    private void awaitAndSend(Batch batch) {
+        lock.lock();
+        try {
+            long remaining = windowNanos;
+            while (!batch.sealed && remaining > 0) {
+                remaining = batch.full.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            seal(batch);
+            lock.unlock();
+        }
+        requestCounter.increment();
+        batchSizes.record(batch.startsByUri.size());
+        try {
+            ViewsResult views = loader.load(batch.startsByUri, batch.end, batch.unique);
+            Map<String, ViewStatsDto> viewsByUri = new HashMap<>();
+            views.stats().forEach(view -> viewsByUri.merge(view.getUri(), view,
+                    (a, b) -> new ViewStatsDto(a.getApp(), a.getUri(), a.getHits() + b.getHits())));
+            complete(batch, () -> batch.result.complete(new Loaded(viewsByUri, views.stale())));
+        } catch (RuntimeException e) {
+            complete(batch, () -> batch.result.completeExceptionally(e));
+        }
+    }
+
+    private void complete(Batch batch, Runnable completion) {
+        lock.lock();
+        try {
+            batch.startsByUri.forEach((uri, start) -> inFlight.remove(new Key(uri, start, batch.unique), batch));
+        } finally {
+            lock.unlock();
+        }
+        completion.run();
+    }
+
+    private void seal(Batch batch) {
+        if (!batch.sealed) {
+            batch.sealed = true;
+            open.remove(batch.unique, batch);
+            batch.full.signal();
+        }
+    }
+
+    @FunctionalInterface
+    interface ViewsLoader {
+        ViewsResult load(Map<String, LocalDateTime> startsByUri, LocalDateTime end, boolean unique);
+    }
+
+    private record Key(String uri, LocalDateTime start, boolean unique) {
+    }
+
+    private record Loaded(Map<String, ViewStatsDto> viewsByUri, boolean stale) {
+    }
+
+    private class Batch {
+        private final boolean unique;
+        private final Map<String, LocalDateTime> startsByUri = new LinkedHashMap<>();
+        private final Condition full = lock.newCondition();
+        private final CompletableFuture<Loaded> result = new CompletableFuture<>();
+        private LocalDateTime end = LocalDateTime.MIN;
+        private boolean sealed;
+
+        Batch(boolean unique) {
+            this.unique = unique;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package ru.practicum;
+
+import java.util.List;
+
+public record ViewsResult(List<ViewStatsDto> stats, boolean stale) {
+}
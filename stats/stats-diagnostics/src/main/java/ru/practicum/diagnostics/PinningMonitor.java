@@ -0,0 +1,64 @@
+package ru.practicum.diagnostics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+// Reports virtual threads that block while pinned to their carrier (synchronized or native frames), via in-process
+// JFR; both services depend on this module and pick it up from the ru.practicum component scan
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class PinningMonitor {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 32;
+
+    private final Duration threshold;
+    private final Counter pinnedCounter;
+    private RecordingStream stream;
+
+    public PinningMonitor(@Value("${diagnostics.pinning-threshold:20ms}") Duration threshold,
+                          MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        this.pinnedCounter = meterRegistry.counter("jvm.threads.virtual.pinned");
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::report);
+        stream.startAsync();
+        log.info("Virtual threads enabled, reporting pinning longer than {}", threshold);
+    }
+
+    @PreDestroy
+    public void stop() {
+        stream.close();
+    }
+
+    private void report(RecordedEvent event) {
+        pinnedCounter.increment();
+        String frames = event.getStackTrace() == null ? "" : event.getStackTrace().getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(PinningMonitor::format)
+                .collect(Collectors.joining("\n\tat ", "\n\tat ", ""));
+        String thread = event.getThread() == null ? "?" : event.getThread().getJavaName();
+        log.warn("Virtual thread {} pinned for {} ms{}", thread, event.getDuration().toMillis(), frames);
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -22,4 +22,6 @@ public class EndpointHitDto {
 
     @JsonFormat(pattern = DateTimeUtil.DATE_PATTERN)
     private LocalDateTime timestamp;
+
+    private Integer weight;
 }
@@ -0,0 +1,16 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitPageDto {
+    private List<EndpointHitDto> hits;
+
+    private String nextCursor;
+}
@@ -0,0 +1,24 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.util.DateTimeUtil;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UriStartDto {
+
+    @NotBlank
+    private String uri;
+
+    @NotNull
+    @JsonFormat(pattern = DateTimeUtil.DATE_PATTERN)
+    private LocalDateTime start;
+}
@@ -0,0 +1,23 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.util.DateTimeUtil;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ViewBucketDto {
+    private String app;
+
+    private String uri;
+
+    @JsonFormat(pattern = DateTimeUtil.DATE_PATTERN)
+    private LocalDateTime bucket;
+
+    private Long hits;
+}
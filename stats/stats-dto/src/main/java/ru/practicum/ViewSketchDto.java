@@ -0,0 +1,16 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ViewSketchDto {
+    private String app;
+
+    private String uri;
+
+    private byte[] registers;
+}
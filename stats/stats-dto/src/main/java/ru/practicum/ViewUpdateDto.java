@@ -0,0 +1,18 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ViewUpdateDto {
+    private long offset;
+
+    private String uri;
+
+    private long hits;
+
+    private long uniqueHits;
+}
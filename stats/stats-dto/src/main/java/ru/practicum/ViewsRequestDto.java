@@ -0,0 +1,28 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.util.DateTimeUtil;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ViewsRequestDto {
+
+    @NotEmpty
+    private List<@Valid UriStartDto> uris;
+
+    @NotNull
+    @JsonFormat(pattern = DateTimeUtil.DATE_PATTERN)
+    private LocalDateTime end;
+
+    private Boolean unique = false;
+}
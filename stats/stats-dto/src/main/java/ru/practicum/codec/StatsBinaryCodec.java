@@ -0,0 +1,210 @@
+package ru.practicum.codec;
+
+import org.springframework.http.MediaType;
+import ru.practicum.EndpointHitSaveDto;
+import ru.practicum.ViewStatsDto;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Layout: version, string dictionary (varint length + utf-8), row count, rows of varint dictionary
+// references (0 is null); hit timestamps are zigzag varint deltas of epoch seconds from the previous hit
+public final class StatsBinaryCodec {
+    public static final String MEDIA_TYPE_VALUE = "application/x-stats-binary";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    private static final int VERSION = 1;
+    private static final int MAX_STRING_BYTES = 1 << 16;
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+    // Smallest encodings of a row: every varint takes at least one byte
+    private static final int MIN_HIT_BYTES = 4;
+    private static final int MIN_VIEW_STATS_BYTES = 3;
+    private static final int MIN_DICTIONARY_ENTRY_BYTES = 1;
+
+    private StatsBinaryCodec() {
+    }
+
+    public static void writeHits(List<EndpointHitSaveDto> hits, OutputStream out) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        for (EndpointHitSaveDto hit : hits) {
+            dictionary.add(hit.getApp());
+            dictionary.add(hit.getUri());
+            dictionary.add(hit.getIp());
+        }
+        out.write(VERSION);
+        dictionary.write(out);
+        writeVarint(out, hits.size());
+        long previous = 0;
+        for (EndpointHitSaveDto hit : hits) {
+            if (hit.getTimestamp() == null) {
+                throw new IllegalArgumentException("Hit timestamp is required");
+            }
+            long epochSecond = hit.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+            writeVarint(out, dictionary.reference(hit.getApp()));
+            writeVarint(out, dictionary.reference(hit.getUri()));
+            writeVarint(out, dictionary.reference(hit.getIp()));
+            writeVarint(out, zigzag(epochSecond - previous));
+            previous = epochSecond;
+        }
+    }
+
+    public static List<EndpointHitSaveDto> readHits(InputStream in) throws IOException {
+        return readHits(in, -1);
+    }
+
+    // length is the payload size when known (-1 otherwise); counts that the payload can't hold are rejected
+    public static List<EndpointHitSaveDto> readHits(InputStream in, long length) throws IOException {
+        readVersion(in);
+        List<String> dictionary = readDictionary(in, length);
+        int count = readCount(in, length, MIN_HIT_BYTES);
+        List<EndpointHitSaveDto> hits = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            String app = lookup(dictionary, readVarint(in));
+            String uri = lookup(dictionary, readVarint(in));
+            String ip = lookup(dictionary, readVarint(in));
+            previous += unzigzag(readVarint(in));
+            hits.add(new EndpointHitSaveDto(app, uri, ip, LocalDateTime.ofEpochSecond(previous, 0, ZoneOffset.UTC)));
+        }
+        return hits;
+    }
+
+    public static void writeViewStats(List<ViewStatsDto> stats, OutputStream out) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        for (ViewStatsDto viewStats : stats) {
+            dictionary.add(viewStats.getApp());
+            dictionary.add(viewStats.getUri());
+        }
+        out.write(VERSION);
+        dictionary.write(out);
+        writeVarint(out, stats.size());
+        for (ViewStatsDto viewStats : stats) {
+            writeVarint(out, dictionary.reference(viewStats.getApp()));
+            writeVarint(out, dictionary.reference(viewStats.getUri()));
+            writeVarint(out, viewStats.getHits() == null ? 0 : viewStats.getHits());
+        }
+    }
+
+    public static List<ViewStatsDto> readViewStats(InputStream in) throws IOException {
+        return readViewStats(in, -1);
+    }
+
+    public static List<ViewStatsDto> readViewStats(InputStream in, long length) throws IOException {
+        readVersion(in);
+        List<String> dictionary = readDictionary(in, length);
+        int count = readCount(in, length, MIN_VIEW_STATS_BYTES);
+        List<ViewStatsDto> stats = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+        for (int i = 0; i < count; i++) {
+            String app = lookup(dictionary, readVarint(in));
+            String uri = lookup(dictionary, readVarint(in));
+            stats.add(new ViewStatsDto(app, uri, readVarint(in)));
+        }
+        return stats;
+    }
+
+    private static void readVersion(InputStream in) throws IOException {
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported stats payload version " + version);
+        }
+    }
+
+    private static List<String> readDictionary(InputStream in, long length) throws IOException {
+        int size = readCount(in, length, MIN_DICTIONARY_ENTRY_BYTES);
+        List<String> dictionary = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+        for (int i = 0; i < size; i++) {
+            long entryLength = readVarint(in);
+            if (entryLength < 0 || entryLength > MAX_STRING_BYTES) {
+                throw new IllegalArgumentException("Dictionary entry is too long: " + entryLength);
+            }
+            byte[] entry = in.readNBytes((int) entryLength);
+            if (entry.length != entryLength) {
+                throw new EOFException("Truncated stats payload");
+            }
+            dictionary.add(new String(entry, StandardCharsets.UTF_8));
+        }
+        return dictionary;
+    }
+
+    private static int readCount(InputStream in, long length, int minElementBytes) throws IOException {
+        long count = readVarint(in);
+        if (count < 0 || count > Integer.MAX_VALUE || length >= 0 && count > length / minElementBytes) {
+            throw new IllegalArgumentException("Invalid element count " + count);
+        }
+        return (int) count;
+    }
+
+    private static String lookup(List<String> dictionary, long reference) {
+        if (reference == 0) {
+            return null;
+        }
+        if (reference > dictionary.size()) {
+            throw new IllegalArgumentException("Unknown dictionary reference " + reference);
+        }
+        return dictionary.get((int) reference - 1);
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated stats payload");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static class Dictionary {
+        private final Map<String, Integer> references = new HashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+
+        void add(String value) {
+            if (value != null && !references.containsKey(value)) {
+                entries.add(value.getBytes(StandardCharsets.UTF_8));
+                references.put(value, entries.size());
+            }
+        }
+
+        int reference(String value) {
+            return value == null ? 0 : references.get(value);
+        }
+
+        void write(OutputStream out) throws IOException {
+            writeVarint(out, entries.size());
+            for (byte[] entry : entries) {
+                writeVarint(out, entry.length);
+                out.write(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.practicum.codec;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.lang.Nullable;
+import ru.practicum.EndpointHitSaveDto;
+import ru.practicum.ViewStatsDto;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+public class StatsBinaryMessageConverter extends AbstractGenericHttpMessageConverter<List<?>> {
+
+    public StatsBinaryMessageConverter() {
+        super(StatsBinaryCodec.MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        Class<?> elementType = elementType(type);
+        return (elementType == EndpointHitSaveDto.class || elementType == ViewStatsDto.class) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        Class<?> elementType = type == null ? null : elementType(type);
+        if (elementType == null || elementType == Object.class) {
+            return supports(clazz) && mediaType != null && StatsBinaryCodec.MEDIA_TYPE.includes(mediaType);
+        }
+        return (elementType == EndpointHitSaveDto.class || elementType == ViewStatsDto.class) && canWrite(mediaType);
+    }
+
+    @Override
+    public List<?> read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException {
+        long length = inputMessage.getHeaders().getContentLength();
+        try {
+            if (elementType(type) == ViewStatsDto.class) {
+                return StatsBinaryCodec.readViewStats(inputMessage.getBody(), length);
+            }
+            return StatsBinaryCodec.readHits(inputMessage.getBody(), length);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected List<?> readInternal(Class<? extends List<?>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Element type of the stats payload is unknown", inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(List<?> list, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        Class<?> elementType = type == null ? null : elementType(type);
+        if (elementType == null || elementType == Object.class) {
+            elementType = list.isEmpty() ? ViewStatsDto.class : list.getFirst().getClass();
+        }
+        if (elementType == EndpointHitSaveDto.class) {
+            StatsBinaryCodec.writeHits((List<EndpointHitSaveDto>) list, outputMessage.getBody());
+        } else if (elementType == ViewStatsDto.class) {
+            StatsBinaryCodec.writeViewStats((List<ViewStatsDto>) list, outputMessage.getBody());
+        } else {
+            throw new HttpMessageNotWritableException("Unsupported stats payload element " + elementType);
+        }
+    }
+
+    private static Class<?> elementType(Type type) {
+        ResolvableType resolvableType = ResolvableType.forType(type);
+        if (!List.class.isAssignableFrom(resolvableType.toClass())) {
+            return null;
+        }
+        return resolvableType.asCollection().getGeneric().toClass();
+    }
+}
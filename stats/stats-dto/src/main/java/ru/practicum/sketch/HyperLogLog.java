@@ -0,0 +1,133 @@
+package ru.practicum.sketch;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Distinct-count sketch with 2^12 registers: relative standard error 1.04 / sqrt(4096) ~ 1.6%
+public class HyperLogLog {
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+    public static final double STANDARD_ERROR = 1.04 / Math.sqrt(REGISTERS);
+
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public void add(String value) {
+        add(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void add(byte[] value) {
+        addHash(hash(value));
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public byte[] toBytes() {
+        int used = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                used++;
+            }
+        }
+        if (used * 3 + 3 >= REGISTERS + 1) {
+            byte[] dense = new byte[REGISTERS + 1];
+            dense[0] = DENSE;
+            System.arraycopy(registers, 0, dense, 1, REGISTERS);
+            return dense;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(used * 3 + 3);
+        out.write(SPARSE);
+        out.write(used >>> 8);
+        out.write(used);
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                out.write(i >>> 8);
+                out.write(i);
+                out.write(registers[i]);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return new HyperLogLog();
+        }
+        if (bytes[0] == DENSE) {
+            return new HyperLogLog(Arrays.copyOfRange(bytes, 1, REGISTERS + 1));
+        }
+        byte[] registers = new byte[REGISTERS];
+        int used = ((bytes[1] & 0xFF) << 8) | (bytes[2] & 0xFF);
+        for (int i = 0; i < used; i++) {
+            int offset = 3 + i * 3;
+            int index = ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+            registers[index] = bytes[offset + 2];
+        }
+        return new HyperLogLog(registers);
+    }
+
+    public static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,190 @@
+package ru.practicum.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.exception.ErrorResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Separate permits for hit ingestion and stats reads, so a slow database backs up writers without starving readers
+@Component
+@ConditionalOnProperty(name = "stats.admission.enabled", havingValue = "true")
+@Slf4j
+public class AdmissionFilter extends OncePerRequestFilter {
+    private final Limiter ingest;
+    private final Limiter query;
+    private final long queueTimeoutNanos;
+    private final String retryAfterSeconds;
+    private final ObjectMapper objectMapper;
+
+    public AdmissionFilter(@Value("${stats.admission.ingest.limit:16}") int ingestLimit,
+                           @Value("${stats.admission.ingest.queue:32}") int ingestQueue,
+                           @Value("${stats.admission.query.limit:32}") int queryLimit,
+                           @Value("${stats.admission.query.queue:64}") int queryQueue,
+                           @Value("${stats.admission.queue-timeout:100ms}") Duration queueTimeout,
+                           @Value("${stats.admission.retry-after:1s}") Duration retryAfter,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this.ingest = new Limiter("ingest", ingestLimit, ingestQueue, HttpStatus.TOO_MANY_REQUESTS, meterRegistry);
+        this.query = new Limiter("query", queryLimit, queryQueue, HttpStatus.SERVICE_UNAVAILABLE, meterRegistry);
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Limiter limiter = classify(request);
+        if (limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!limiter.acquire(queueTimeoutNanos)) {
+            reject(limiter, response);
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            // Streamed (NDJSON, SSE) responses keep working after the dispatch returns, so they hold the permit
+            // until the async request completes
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(limiter));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                limiter.release();
+            }
+        }
+    }
+
+    private Limiter classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean post = "POST".equals(request.getMethod());
+        if (post && (path.equals("/hit") || path.equals("/hits"))) {
+            return ingest;
+        }
+        if (path.startsWith("/stats") || path.equals("/hits")) {
+            return query;
+        }
+        return null;
+    }
+
+    private void reject(Limiter limiter, HttpServletResponse response) throws IOException {
+        limiter.rejected.increment();
+        log.debug("Rejected {} request: {} active, {} queued", limiter.name, limiter.active.get(),
+                limiter.queued.get());
+        response.setStatus(limiter.rejectStatus.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse("Too many concurrent " + limiter.name + " requests"));
+    }
+
+    // A timed-out or failed async request is completed afterwards, so the listener can be called more than once
+    private static class ReleaseOnCompletion implements AsyncListener {
+        private final Limiter limiter;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseOnCompletion(Limiter limiter) {
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release();
+            }
+        }
+    }
+
+    private static class Limiter {
+        private final String name;
+        private final Semaphore permits;
+        private final int maxQueue;
+        private final HttpStatus rejectStatus;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Counter rejected;
+
+        Limiter(String name, int limit, int maxQueue, HttpStatus rejectStatus, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.permits = new Semaphore(limit, true);
+            this.maxQueue = maxQueue;
+            this.rejectStatus = rejectStatus;
+            this.rejected = meterRegistry.counter("stats.server.admission.rejected", "type", name);
+            Gauge.builder("stats.server.admission.active", active, AtomicInteger::get)
+                    .tag("type", name).register(meterRegistry);
+            Gauge.builder("stats.server.admission.queued", queued, AtomicInteger::get)
+                    .tag("type", name).register(meterRegistry);
+        }
+
+        boolean acquire(long timeoutNanos) {
+            if (!permits.tryAcquire()) {
+                if (queued.incrementAndGet() > maxQueue) {
+                    queued.decrementAndGet();
+                    return false;
+                }
+                try {
+                    if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                        return false;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                } finally {
+                    queued.decrementAndGet();
+                }
+            }
+            active.incrementAndGet();
+            return true;
+        }
+
+        void release() {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+}
@@ -1,17 +1,33 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.EndpointHitDto;
 import ru.practicum.EndpointHitSaveDto;
+import ru.practicum.HitPageDto;
+import ru.practicum.ViewBucketDto;
+import ru.practicum.ViewSketchDto;
 import ru.practicum.ViewStatsDto;
+import ru.practicum.ViewsRequestDto;
+import ru.practicum.exception.InvalidDateException;
+import ru.practicum.model.Granularity;
+import ru.practicum.service.HitImporter;
 import ru.practicum.service.StatsService;
 import ru.practicum.util.DateTimeUtil;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -20,6 +36,8 @@ import java.util.List;
 @Slf4j
 public class StatsController {
     private final StatsService statsService;
+    private final HitImporter hitImporter;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -30,15 +48,131 @@ public class StatsController {
         return hitDto;
     }
 
+    @PostMapping("/hits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void saveHits(@RequestBody @Valid List<EndpointHitSaveDto> hitSaveDtos) {
+        log.info("Save {} hits", hitSaveDtos.size());
+        statsService.saveHits(hitSaveDtos);
+        log.info("{} hits saved successfully", hitSaveDtos.size());
+    }
+
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void importHits(InputStream hits) throws IOException {
+        log.info("Import hits stream");
+        long imported = hitImporter.importHits(hits);
+        log.info("{} hits imported successfully", imported);
+    }
+
+    @GetMapping("/hits")
+    @ResponseStatus(HttpStatus.OK)
+    public HitPageDto exportHits(
+            @RequestParam(required = false) @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime end,
+            @RequestParam(required = false) String app,
+            @RequestParam(required = false) String uri,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "1000") @Positive @Max(10000) Integer limit
+    ) {
+        log.info("Export hits - start: {}, end: {}, app: {}, uri: {}, cursor: {}, limit: {}",
+                start, end, app, uri, cursor, limit);
+        return statsService.exportHits(start, end, app, uri, cursor, limit);
+    }
+
     @GetMapping("/stats")
     @ResponseStatus(HttpStatus.OK)
     public List<ViewStatsDto> getStats(
             @RequestParam @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime start,
             @RequestParam @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime end,
             @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "false") Boolean exact
+    ) {
+        log.info("Get statistics - start: {}, end: {}, uris: {}, unique: {}, exact: {}",
+                start, end, uris, unique, exact);
+        return statsService.getStats(start, end, uris, unique, exact);
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamStats(
+            @RequestParam @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "false") Boolean exact
+    ) {
+        log.info("Stream statistics - start: {}, end: {}, uris: {}, unique: {}, exact: {}",
+                start, end, uris, unique, exact);
+        // The body runs after the response is committed, so a bad range has to be rejected before it starts
+        if (end.isBefore(start)) {
+            throw new InvalidDateException("End date can't be before start date");
+        }
+        return outputStream -> {
+            JsonGenerator generator = objectMapper.createGenerator(outputStream);
+            generator.setRootValueSeparator(null);
+            statsService.streamStats(start, end, uris, unique, exact, viewStats -> {
+                try {
+                    generator.writeObject(viewStats);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.close();
+        };
+    }
+
+    @GetMapping("/stats/sketches")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ViewSketchDto> getSketches(
+            @RequestParam @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime end,
+            @RequestParam(required = false) List<String> uris
+    ) {
+        log.info("Get unique-IP sketches - start: {}, end: {}, uris: {}", start, end, uris);
+        return statsService.getSketches(start, end, uris);
+    }
+
+    @GetMapping("/stats/timeseries")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ViewBucketDto> getTimeSeries(
+            @RequestParam @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "HOUR") Granularity bucket
+    ) {
+        log.info("Get time series - start: {}, end: {}, uris: {}, bucket: {}", start, end, uris, bucket);
+        return statsService.getTimeSeries(start, end, uris, bucket);
+    }
+
+    @GetMapping("/stats/top")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ViewStatsDto> getTopStats(
+            @RequestParam @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = DateTimeUtil.DATE_PATTERN) LocalDateTime end,
+            @RequestParam(defaultValue = "10") @Positive @Max(1000) Integer limit,
+            @RequestParam(required = false) String app,
+            @RequestParam(required = false) String uriPrefix,
             @RequestParam(defaultValue = "false") Boolean unique
     ) {
-        log.info("Get statistics - start: {}, end: {}, uris: {}, unique: {}", start, end, uris, unique);
-        return statsService.getStats(start, end, uris, unique);
+        log.info("Get top {} statistics - start: {}, end: {}, app: {}, uriPrefix: {}, unique: {}",
+                limit, start, end, app, uriPrefix, unique);
+        return statsService.getTopStats(start, end, limit, app, uriPrefix, unique);
+    }
+
+    @PostMapping("/stats/views")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ViewStatsDto> getViews(@RequestBody @Valid ViewsRequestDto viewsRequestDto) {
+        log.info("Get views for {} uris, end: {}, unique: {}", viewsRequestDto.getUris().size(),
+                viewsRequestDto.getEnd(), viewsRequestDto.getUnique());
+        return statsService.getViews(viewsRequestDto);
+    }
+
+    @PostMapping("/stats/views/sketches")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ViewSketchDto> getViewSketches(@RequestBody @Valid ViewsRequestDto viewsRequestDto) {
+        log.info("Get unique-IP sketches for {} uris, end: {}", viewsRequestDto.getUris().size(),
+                viewsRequestDto.getEnd());
+        return statsService.getViewSketches(viewsRequestDto);
     }
 }
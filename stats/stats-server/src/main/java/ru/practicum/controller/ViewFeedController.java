@@ -0,0 +1,29 @@
+package ru.practicum.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.service.ViewCounterPublisher;
+
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.push.enabled", havingValue = "true")
+@Slf4j
+public class ViewFeedController {
+    private final ViewCounterPublisher viewCounterPublisher;
+
+    @GetMapping(value = "/views/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam(defaultValue = "0") long after,
+                                @RequestParam(required = false) String uriPrefix,
+                                @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long offset = lastEventId != null ? Math.max(after, lastEventId) : after;
+        log.info("Subscribe to view updates after offset {}", offset);
+        return viewCounterPublisher.subscribe(offset, uriPrefix);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.exception;
+
+public class InvalidBucketException extends RuntimeException {
+    public InvalidBucketException(String message) {
+        super(message);
+    }
+}
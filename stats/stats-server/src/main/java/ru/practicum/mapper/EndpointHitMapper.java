@@ -1,14 +1,31 @@
 package ru.practicum.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import ru.practicum.EndpointHitDto;
 import ru.practicum.EndpointHitSaveDto;
 import ru.practicum.model.EndpointHit;
+import ru.practicum.service.HitDictionary;
+import ru.practicum.util.IpAddressCodec;
 
-@Mapper(componentModel = "spring")
+import java.util.List;
+
+@Mapper(componentModel = "spring", uses = {HitDictionary.class, IpAddressCodec.class})
 public interface EndpointHitMapper {
 
+    @Mapping(target = "app", source = "appId", qualifiedByName = "appName")
+    @Mapping(target = "uri", source = "uriId", qualifiedByName = "uri")
     EndpointHitDto mapToEndpointHitDto(EndpointHit endpointHit);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "weight", constant = "1")
+    EndpointHitDto mapToEndpointHitDto(EndpointHitSaveDto hitSaveDto);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "weight", ignore = true)
+    @Mapping(target = "appId", source = "app", qualifiedByName = "appId")
+    @Mapping(target = "uriId", source = "uri", qualifiedByName = "uriId")
     EndpointHit mapToEndpointHit(EndpointHitSaveDto hitDto);
+
+    List<EndpointHit> mapToEndpointHits(List<EndpointHitSaveDto> hitDtos);
 }
@@ -0,0 +1,6 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+public record BucketCount(int appId, int uriId, LocalDateTime bucket, long hits) {
+}
@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record CompactedChunk(HitCursor last, long hits) {
+}
@@ -0,0 +1,7 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+// horizon and cursor describe the run in progress; compactedBefore is the horizon of the last completed run
+public record CompactionCheckpoint(LocalDateTime horizon, HitCursor cursor, LocalDateTime compactedBefore) {
+}
@@ -1,8 +1,8 @@
 package ru.practicum.model;
 
 import jakarta.persistence.*;
-import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -13,6 +13,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "hits")
 @NoArgsConstructor
+@AllArgsConstructor
 @Getter
 @Setter
 @ToString
@@ -22,16 +23,21 @@ public class EndpointHit {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @NotBlank
-    private String app;
+    @NotNull
+    @Column(name = "app_id")
+    private Integer appId;
 
-    @NotBlank
-    private String uri;
+    @NotNull
+    @Column(name = "uri_id")
+    private Integer uriId;
 
-    @NotBlank
-    private String ip;
+    @NotNull
+    @ToString.Exclude
+    private byte[] ip;
 
     @NotNull
     @Column(name = "time_stamp")
     private LocalDateTime timestamp;
+
+    private int weight = 1;
 }
@@ -0,0 +1,37 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum Granularity {
+    DAY(ChronoUnit.DAYS, "hit_rollups_day", "hit_sketches_day"),
+    HOUR(ChronoUnit.HOURS, "hit_rollups_hour", "hit_sketches_hour"),
+    MINUTE(ChronoUnit.MINUTES, "hit_rollups_minute", null),
+    RAW(ChronoUnit.SECONDS, null, null);
+
+    private final ChronoUnit unit;
+    private final String rollupTable;
+    private final String sketchTable;
+
+    public LocalDateTime floor(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime dateTime) {
+        LocalDateTime floor = floor(dateTime);
+        return floor.equals(dateTime) ? floor : floor.plus(1, unit);
+    }
+
+    public boolean isRollup() {
+        return rollupTable != null;
+    }
+
+    public boolean hasSketch() {
+        return sketchTable != null;
+    }
+}
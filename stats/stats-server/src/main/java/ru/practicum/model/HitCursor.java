@@ -0,0 +1,39 @@
+package ru.practicum.model;
+
+import ru.practicum.exception.InvalidCursorException;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+// Opaque continuation token: url-safe base64 of the (time_stamp in epoch micros, id) of the last exported hit
+public record HitCursor(LocalDateTime timestamp, long id) {
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int TOKEN_BYTES = 2 * Long.BYTES;
+
+    public static HitCursor of(EndpointHit hit) {
+        return new HitCursor(hit.getTimestamp(), hit.getId());
+    }
+
+    public static HitCursor parse(String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor: " + token);
+        }
+        if (bytes.length != TOKEN_BYTES) {
+            throw new InvalidCursorException("Malformed cursor: " + token);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new HitCursor(EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS), buffer.getLong());
+    }
+
+    public String toToken() {
+        ByteBuffer buffer = ByteBuffer.allocate(TOKEN_BYTES)
+                .putLong(ChronoUnit.MICROS.between(EPOCH, timestamp))
+                .putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+}
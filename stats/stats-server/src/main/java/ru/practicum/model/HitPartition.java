@@ -0,0 +1,6 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+public record HitPartition(String name, LocalDateTime from, LocalDateTime to) {
+}
@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record UriSegment(int uriId, TimeSegment segment) {
+}
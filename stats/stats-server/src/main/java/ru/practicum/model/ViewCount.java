@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record ViewCount(Integer appId, Integer uriId, Long hits) {
+}
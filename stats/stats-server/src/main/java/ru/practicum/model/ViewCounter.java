@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record ViewCounter(int uriId, long hits, long uniqueHits) {
+}
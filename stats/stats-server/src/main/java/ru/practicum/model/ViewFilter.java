@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record ViewFilter(Integer appId, String uriPrefix) {
+}
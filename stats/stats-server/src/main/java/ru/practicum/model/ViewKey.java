@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record ViewKey(int appId, int uriId) {
+}
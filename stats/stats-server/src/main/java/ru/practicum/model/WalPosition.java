@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record WalPosition(long segment, int offset) {
+}
@@ -0,0 +1,104 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.CompactedChunk;
+import ru.practicum.model.CompactionCheckpoint;
+import ru.practicum.model.HitCursor;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class CompactionRepository {
+    private static final String COMPACT_CHUNK = """
+            with chunk as (
+                select id, time_stamp from hits
+                where time_stamp < ?%s
+                order by time_stamp, id
+                limit ?
+            ), deleted as (
+                delete from hits h using chunk c
+                where h.id = c.id and h.time_stamp = c.time_stamp
+                returning h.id, h.app_id, h.uri_id, h.ip, h.time_stamp, h.weight
+            ), folded as (
+                insert into hit_seconds (app_id, uri_id, bucket, hits, ips)
+                select app_id, uri_id, date_trunc('second', time_stamp), sum(weight), array_agg(distinct ip)
+                from deleted
+                group by app_id, uri_id, date_trunc('second', time_stamp)
+                order by app_id, uri_id, date_trunc('second', time_stamp)
+                on conflict (app_id, uri_id, bucket) do update
+                set hits = hit_seconds.hits + excluded.hits,
+                    ips = array(select distinct unnest(hit_seconds.ips || excluded.ips))
+            )
+            select time_stamp, id, count(*) over () as hits
+            from deleted
+            order by time_stamp desc, id desc
+            limit 1
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CompactionCheckpoint lockCheckpoint() {
+        jdbcTemplate.update("insert into hit_compaction_checkpoint (id) values (1) on conflict (id) do nothing");
+        return jdbcTemplate.queryForObject(
+                """
+                select horizon, last_time_stamp, last_id, compacted_before
+                from hit_compaction_checkpoint
+                where id = 1
+                for update
+                """,
+                (rs, rowNum) -> {
+                    Timestamp lastTimestamp = rs.getTimestamp("last_time_stamp");
+                    return new CompactionCheckpoint(
+                            toLocalDateTime(rs.getTimestamp("horizon")),
+                            lastTimestamp == null ? null
+                                    : new HitCursor(lastTimestamp.toLocalDateTime(), rs.getLong("last_id")),
+                            toLocalDateTime(rs.getTimestamp("compacted_before")));
+                });
+    }
+
+    public void saveCheckpoint(CompactionCheckpoint checkpoint) {
+        HitCursor cursor = checkpoint.cursor();
+        jdbcTemplate.update(
+                "update hit_compaction_checkpoint set horizon = ?, last_time_stamp = ?, last_id = ? where id = 1",
+                Timestamp.valueOf(checkpoint.horizon()),
+                cursor == null ? null : Timestamp.valueOf(cursor.timestamp()),
+                cursor == null ? null : cursor.id());
+    }
+
+    public void completeRun(LocalDateTime horizon) {
+        jdbcTemplate.update("""
+                update hit_compaction_checkpoint
+                set horizon = null, last_time_stamp = null, last_id = null, compacted_before = ?
+                where id = 1
+                """, Timestamp.valueOf(horizon));
+    }
+
+    public Optional<CompactedChunk> compactChunk(LocalDateTime horizon, HitCursor after, int limit) {
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(Timestamp.valueOf(horizon));
+        String cursorFilter = "";
+        if (after != null) {
+            cursorFilter = " and (time_stamp, id) > (?, ?)";
+            parameters.add(Timestamp.valueOf(after.timestamp()));
+            parameters.add(after.id());
+        }
+        parameters.add(limit);
+        return jdbcTemplate.query(String.format(COMPACT_CHUNK, cursorFilter),
+                (rs, rowNum) -> new CompactedChunk(
+                        new HitCursor(rs.getTimestamp("time_stamp").toLocalDateTime(), rs.getLong("id")),
+                        rs.getLong("hits")),
+                parameters.toArray()
+        ).stream().findFirst();
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
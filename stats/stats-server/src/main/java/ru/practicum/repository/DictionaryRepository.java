@@ -0,0 +1,65 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class DictionaryRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public Map<String, Integer> assignAppIds(Collection<String> names) {
+        return assign("apps", "name", names);
+    }
+
+    public Map<String, Integer> assignUriIds(Collection<String> uris) {
+        return assign("uris", "uri", uris);
+    }
+
+    public Map<String, Integer> findAppIds(Collection<String> names) {
+        return find("apps", "name", "name", names.toArray(String[]::new), "varchar");
+    }
+
+    public Map<String, Integer> findUriIds(Collection<String> uris) {
+        return find("uris", "uri", "uri", uris.toArray(String[]::new), "varchar");
+    }
+
+    public Map<Integer, String> findAppNames(Collection<Integer> ids) {
+        return invert(find("apps", "name", "id", ids.toArray(Integer[]::new), "int"));
+    }
+
+    public Map<Integer, String> findUris(Collection<Integer> ids) {
+        return invert(find("uris", "uri", "id", ids.toArray(Integer[]::new), "int"));
+    }
+
+    private Map<String, Integer> assign(String table, String column, Collection<String> values) {
+        String[] array = values.toArray(String[]::new);
+        jdbcTemplate.update(String.format("""
+                insert into %1$s (%2$s)
+                select v from unnest(?::varchar[]) as v order by v
+                on conflict (%2$s) do nothing
+                """, table, column), ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", array)));
+        return find(table, column, column, array, "varchar");
+    }
+
+    private Map<String, Integer> find(String table, String column, String keyColumn, Object[] keys, String type) {
+        Map<String, Integer> result = new HashMap<>();
+        jdbcTemplate.query(String.format("select id, %s as value from %s where %s = any(?)", column, table, keyColumn),
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf(type, keys)),
+                rs -> {
+                    result.put(rs.getString("value"), rs.getInt("id"));
+                });
+        return result;
+    }
+
+    private static Map<Integer, String> invert(Map<String, Integer> map) {
+        Map<Integer, String> result = new HashMap<>();
+        map.forEach((value, id) -> result.put(id, value));
+        return result;
+    }
+}
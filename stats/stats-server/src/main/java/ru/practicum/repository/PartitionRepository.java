@@ -0,0 +1,97 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.HitPartition;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Repository
+@RequiredArgsConstructor
+public class PartitionRepository {
+    private static final String DEFAULT_PARTITION = "hits_default";
+    private static final Pattern BOUNDS = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String LOCK_TIMEOUT = "5s";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select exists (select 1 from pg_partitioned_table where partrelid = 'hits'::regclass)",
+                Boolean.class));
+    }
+
+    public void createDefaultPartition() {
+        jdbcTemplate.execute("create table if not exists " + DEFAULT_PARTITION + " partition of hits default");
+    }
+
+    public List<HitPartition> findPartitions() {
+        return jdbcTemplate.query("""
+                        select c.relname as name, pg_get_expr(c.relpartbound, c.oid) as bound
+                        from pg_inherits i
+                        join pg_class c on c.oid = i.inhrelid
+                        where i.inhparent = 'hits'::regclass
+                        """,
+                (rs, rowNum) -> {
+                    Matcher matcher = BOUNDS.matcher(rs.getString("bound"));
+                    if (!matcher.find()) {
+                        return null;
+                    }
+                    return new HitPartition(
+                            rs.getString("name"),
+                            LocalDateTime.parse(matcher.group(1), BOUND_FORMATTER),
+                            LocalDateTime.parse(matcher.group(2), BOUND_FORMATTER));
+                }).stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public HitPartition createPartition(LocalDateTime from, LocalDateTime to) {
+        HitPartition partition = new HitPartition("hits_p" + from.format(NAME_FORMATTER), from, to);
+        String bounds = String.format("from ('%s') to ('%s')",
+                from.format(BOUND_FORMATTER), to.format(BOUND_FORMATTER));
+
+        // Blocks writers to hits, not readers, until the transaction ends: a hit for the new range inserted
+        // between the copy and the delete would otherwise be deleted from the default partition with it
+        jdbcTemplate.execute("set local lock_timeout = '" + LOCK_TIMEOUT + "'");
+        jdbcTemplate.execute("lock table hits in share row exclusive mode");
+        jdbcTemplate.execute("create table " + partition.name()
+                + " (like hits including defaults including constraints)");
+        jdbcTemplate.update("insert into " + partition.name() + " select * from " + DEFAULT_PARTITION
+                        + " where time_stamp >= ? and time_stamp < ?",
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+        jdbcTemplate.update("delete from " + DEFAULT_PARTITION + " where time_stamp >= ? and time_stamp < ?",
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+        jdbcTemplate.execute("alter table hits attach partition " + partition.name() + " for values " + bounds);
+        return partition;
+    }
+
+    // Detaching takes an ACCESS EXCLUSIVE lock on hits, so it gives up rather than queue every reader behind it;
+    // DETACH ... CONCURRENTLY is not an option while a default partition exists
+    public void dropPartition(HitPartition partition) {
+        jdbcTemplate.execute("set local lock_timeout = '" + LOCK_TIMEOUT + "'");
+        jdbcTemplate.execute("alter table hits detach partition " + partition.name());
+        jdbcTemplate.execute("drop table " + partition.name());
+    }
+
+    public Optional<LocalDateTime> findDefaultPartitionStart() {
+        Timestamp start = jdbcTemplate.queryForObject(
+                "select min(time_stamp) from " + DEFAULT_PARTITION, Timestamp.class);
+        return Optional.ofNullable(start).map(Timestamp::toLocalDateTime);
+    }
+
+    public int deleteFromDefaultBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("delete from " + DEFAULT_PARTITION + " where time_stamp < ?",
+                Timestamp.valueOf(cutoff));
+    }
+}
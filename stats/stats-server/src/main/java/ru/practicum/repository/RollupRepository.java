@@ -0,0 +1,187 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.BucketCount;
+import ru.practicum.model.BucketKey;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.TimeSegment;
+import ru.practicum.model.UriSegment;
+import ru.practicum.model.ViewCount;
+import ru.practicum.model.ViewFilter;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+    private static final String UPSERT = """
+            insert into %1$s (app_id, uri_id, bucket, hits)
+            select * from unnest(?::int[], ?::int[], ?::timestamp[], ?::bigint[]) as v(app_id, uri_id, bucket, hits)
+            order by app_id, uri_id, bucket
+            on conflict (app_id, uri_id, bucket) do update set hits = %1$s.hits + excluded.hits
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public void increment(List<EndpointHit> hits) {
+        for (Granularity granularity : Granularity.values()) {
+            if (granularity.isRollup()) {
+                increment(granularity, hits);
+            }
+        }
+    }
+
+    public void findViewCounts(List<TimeSegment> segments, List<Integer> uriIds, Consumer<ViewCount> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String uriFilter = "";
+        if (uriIds != null) {
+            parameters.addValue("uriIds", uriIds);
+            uriFilter = " and uri_id in (:uriIds)";
+        }
+        queryViewCounts(segments, parameters, uriFilter, " order by hits desc", consumer);
+    }
+
+    public void findViewCounts(List<TimeSegment> segments, ViewFilter filter, Consumer<ViewCount> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        queryViewCounts(segments, parameters, ViewFilterParameters.bind(parameters, filter), "", consumer);
+    }
+
+    public List<ViewCount> findViewCounts(List<UriSegment> segments) {
+        if (segments.isEmpty()) {
+            return List.of();
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        List<String> parts = new ArrayList<>();
+        UriSegmentParameters.groupByGranularity(segments).forEach((granularity, group) -> {
+            String prefix = UriSegmentParameters.bind(parameters, granularity, group);
+            String ranges = String.format(
+                    "unnest(:%1$sUriIds, :%1$sFrom, :%1$sTo) as r(uri_id, from_ts, to_ts)", prefix);
+            if (granularity.isRollup()) {
+                parts.add(String.format(
+                        "select t.app_id, t.uri_id, t.hits from %s t join %s on t.uri_id = r.uri_id "
+                                + "and t.bucket >= r.from_ts and t.bucket < r.to_ts "
+                                + "where t.bucket >= :%3$sMin and t.bucket < :%3$sMax",
+                        granularity.getRollupTable(), ranges, prefix));
+            } else {
+                parts.add(String.format(
+                        "select h.app_id, h.uri_id, sum(h.hits) as hits from hit_counts h "
+                                + "join %s on h.uri_id = r.uri_id "
+                                + "and h.time_stamp >= r.from_ts and h.time_stamp < r.to_ts "
+                                + "where h.time_stamp >= :%2$sMin and h.time_stamp < :%2$sMax "
+                                + "group by h.app_id, h.uri_id",
+                        ranges, prefix));
+            }
+        });
+        String sql = "select app_id, uri_id, sum(hits) as hits from (" + String.join(" union all ", parts) + ") s "
+                + "group by app_id, uri_id order by hits desc";
+        return namedJdbcTemplate.query(sql, parameters, (rs, rowNum) -> new ViewCount(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getLong("hits")
+        ));
+    }
+
+    public void findBucketCounts(List<TimeSegment> segments, List<Integer> uriIds, Granularity width, int limit,
+                                 Consumer<BucketCount> consumer) {
+        if (segments.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String uriFilter = "";
+        if (uriIds != null) {
+            parameters.addValue("uriIds", uriIds);
+            uriFilter = " and uri_id in (:uriIds)";
+        }
+        String unit = width.name().toLowerCase();
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            TimeSegment segment = segments.get(i);
+            parameters.addValue("from" + i, Timestamp.valueOf(segment.from()));
+            parameters.addValue("to" + i, Timestamp.valueOf(segment.to()));
+            if (segment.granularity().isRollup()) {
+                parts.add(String.format(
+                        "select app_id, uri_id, date_trunc('%s', bucket) as bucket, hits from %s "
+                                + "where bucket >= :from%d and bucket < :to%d%s",
+                        unit, segment.granularity().getRollupTable(), i, i, uriFilter));
+            } else {
+                parts.add(String.format(
+                        "select app_id, uri_id, date_trunc('%s', time_stamp) as bucket, hits from hit_counts "
+                                + "where time_stamp >= :from%d and time_stamp < :to%d%s",
+                        unit, i, i, uriFilter));
+            }
+        }
+        String sql = "select app_id, uri_id, bucket, sum(hits) as hits from (" + String.join(" union all ", parts)
+                + ") s group by app_id, uri_id, bucket order by uri_id, app_id, bucket limit :limit";
+        parameters.addValue("limit", limit);
+        namedJdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> consumer.accept(new BucketCount(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getTimestamp("bucket").toLocalDateTime(),
+                rs.getLong("hits"))));
+    }
+
+    private void queryViewCounts(List<TimeSegment> segments, MapSqlParameterSource parameters, String filter,
+                                 String order, Consumer<ViewCount> consumer) {
+        if (segments.isEmpty()) {
+            return;
+        }
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            TimeSegment segment = segments.get(i);
+            parameters.addValue("from" + i, Timestamp.valueOf(segment.from()));
+            parameters.addValue("to" + i, Timestamp.valueOf(segment.to()));
+            if (segment.granularity().isRollup()) {
+                parts.add(String.format(
+                        "select app_id, uri_id, hits from %s where bucket >= :from%d and bucket < :to%d%s",
+                        segment.granularity().getRollupTable(), i, i, filter));
+            } else {
+                parts.add(String.format(
+                        "select app_id, uri_id, sum(hits) as hits from hit_counts "
+                                + "where time_stamp >= :from%d and time_stamp < :to%d%s group by app_id, uri_id",
+                        i, i, filter));
+            }
+        }
+        String sql = "select app_id, uri_id, sum(hits) as hits from (" + String.join(" union all ", parts) + ") s "
+                + "group by app_id, uri_id" + order;
+        namedJdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> consumer.accept(
+                new ViewCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits"))));
+    }
+
+    private void increment(Granularity granularity, List<EndpointHit> hits) {
+        Map<BucketKey, Long> counts = hits.stream()
+                .collect(Collectors.groupingBy(
+                        hit -> new BucketKey(hit.getAppId(), hit.getUriId(), granularity.floor(hit.getTimestamp())),
+                        Collectors.summingLong(EndpointHit::getWeight)));
+
+        Integer[] appIds = new Integer[counts.size()];
+        Integer[] uriIds = new Integer[counts.size()];
+        Timestamp[] buckets = new Timestamp[counts.size()];
+        Long[] values = new Long[counts.size()];
+        int i = 0;
+        for (Map.Entry<BucketKey, Long> entry : counts.entrySet()) {
+            appIds[i] = entry.getKey().appId();
+            uriIds[i] = entry.getKey().uriId();
+            buckets[i] = Timestamp.valueOf(entry.getKey().bucket());
+            values[i] = entry.getValue();
+            i++;
+        }
+        jdbcTemplate.update(String.format(UPSERT, granularity.getRollupTable()), ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("int", appIds));
+            ps.setArray(2, ps.getConnection().createArrayOf("int", uriIds));
+            ps.setArray(3, ps.getConnection().createArrayOf("timestamp", buckets));
+            ps.setArray(4, ps.getConnection().createArrayOf("bigint", values));
+        });
+    }
+}
@@ -0,0 +1,218 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.BucketKey;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.TimeSegment;
+import ru.practicum.model.UriSegment;
+import ru.practicum.model.ViewFilter;
+import ru.practicum.model.ViewKey;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+@Repository
+@RequiredArgsConstructor
+public class SketchRepository {
+    private static final String INSERT_MISSING = """
+            insert into %s (app_id, uri_id, bucket, registers)
+            select app_id, uri_id, bucket, ''::bytea
+            from unnest(?::int[], ?::int[], ?::timestamp[]) as k(app_id, uri_id, bucket)
+            order by app_id, uri_id, bucket
+            on conflict (app_id, uri_id, bucket) do nothing
+            """;
+    private static final String SELECT_FOR_UPDATE = """
+            select t.app_id, t.uri_id, t.bucket, t.registers
+            from %s t
+            join unnest(?::int[], ?::int[], ?::timestamp[]) as k(app_id, uri_id, bucket)
+            on t.app_id = k.app_id and t.uri_id = k.uri_id and t.bucket = k.bucket
+            order by t.app_id, t.uri_id, t.bucket
+            for update of t
+            """;
+    private static final String UPDATE = """
+            update %s t set registers = v.registers
+            from unnest(?::int[], ?::int[], ?::timestamp[], ?::bytea[]) as v(app_id, uri_id, bucket, registers)
+            where t.app_id = v.app_id and t.uri_id = v.uri_id and t.bucket = v.bucket
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public void merge(List<EndpointHit> hits) {
+        for (Granularity granularity : Granularity.values()) {
+            if (granularity.hasSketch()) {
+                merge(granularity, hits);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select not exists (select 1 from hit_sketches_day)", Boolean.class));
+    }
+
+    public Map<ViewKey, HyperLogLog> findUniqueSketches(List<TimeSegment> segments, List<Integer> uriIds) {
+        if (segments.isEmpty()) {
+            return new HashMap<>();
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String uriFilter = "";
+        if (uriIds != null) {
+            parameters.addValue("uriIds", uriIds);
+            uriFilter = " and uri_id in (:uriIds)";
+        }
+        return sketches(sketchQuery(segments, parameters, uriFilter), parameters);
+    }
+
+    public void findUniqueSketches(List<TimeSegment> segments, ViewFilter filter,
+                                   BiConsumer<ViewKey, HyperLogLog> consumer) {
+        if (segments.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String sql = sketchQuery(segments, parameters, ViewFilterParameters.bind(parameters, filter))
+                + " order by app_id, uri_id";
+        ViewKey[] current = new ViewKey[1];
+        HyperLogLog[] sketch = new HyperLogLog[1];
+        namedJdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> {
+            ViewKey key = new ViewKey(rs.getInt("app_id"), rs.getInt("uri_id"));
+            if (!key.equals(current[0])) {
+                if (current[0] != null) {
+                    consumer.accept(current[0], sketch[0]);
+                }
+                current[0] = key;
+                sketch[0] = new HyperLogLog();
+            }
+            add(sketch[0], rs);
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0], sketch[0]);
+        }
+    }
+
+    public Map<ViewKey, HyperLogLog> findUniqueSketches(List<UriSegment> segments) {
+        if (segments.isEmpty()) {
+            return new HashMap<>();
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        List<String> parts = new ArrayList<>();
+        UriSegmentParameters.groupByGranularity(segments).forEach((granularity, group) -> {
+            String prefix = UriSegmentParameters.bind(parameters, granularity, group);
+            String ranges = String.format(
+                    "unnest(:%1$sUriIds, :%1$sFrom, :%1$sTo) as r(uri_id, from_ts, to_ts)", prefix);
+            if (granularity.hasSketch()) {
+                parts.add(String.format(
+                        "select t.app_id, t.uri_id, t.registers, null::bytea as ip from %s t join %s "
+                                + "on t.uri_id = r.uri_id and t.bucket >= r.from_ts and t.bucket < r.to_ts "
+                                + "where t.bucket >= :%3$sMin and t.bucket < :%3$sMax",
+                        granularity.getSketchTable(), ranges, prefix));
+            } else {
+                parts.add(String.format(
+                        "select distinct h.app_id, h.uri_id, null::bytea as registers, h.ip from hit_ips h join %s "
+                                + "on h.uri_id = r.uri_id and h.time_stamp >= r.from_ts and h.time_stamp < r.to_ts "
+                                + "where h.time_stamp >= :%2$sMin and h.time_stamp < :%2$sMax",
+                        ranges, prefix));
+            }
+        });
+        return sketches(String.join(" union all ", parts), parameters);
+    }
+
+    private Map<ViewKey, HyperLogLog> sketches(String sql, MapSqlParameterSource parameters) {
+        Map<ViewKey, HyperLogLog> sketches = new HashMap<>();
+        namedJdbcTemplate.query(sql, parameters, rs -> {
+            HyperLogLog sketch = sketches.computeIfAbsent(
+                    new ViewKey(rs.getInt("app_id"), rs.getInt("uri_id")), key -> new HyperLogLog());
+            add(sketch, rs);
+        });
+        return sketches;
+    }
+
+    private static String sketchQuery(List<TimeSegment> segments, MapSqlParameterSource parameters, String filter) {
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            TimeSegment segment = segments.get(i);
+            parameters.addValue("from" + i, Timestamp.valueOf(segment.from()));
+            parameters.addValue("to" + i, Timestamp.valueOf(segment.to()));
+            if (segment.granularity().hasSketch()) {
+                parts.add(String.format(
+                        "select app_id, uri_id, registers, null::bytea as ip from %s "
+                                + "where bucket >= :from%d and bucket < :to%d%s",
+                        segment.granularity().getSketchTable(), i, i, filter));
+            } else {
+                parts.add(String.format(
+                        "select distinct app_id, uri_id, null::bytea as registers, ip from hit_ips "
+                                + "where time_stamp >= :from%d and time_stamp < :to%d%s",
+                        i, i, filter));
+            }
+        }
+        return String.join(" union all ", parts);
+    }
+
+    private static void add(HyperLogLog sketch, ResultSet rs) throws SQLException {
+        byte[] ip = rs.getBytes("ip");
+        if (ip != null) {
+            sketch.add(ip);
+        } else {
+            sketch.merge(HyperLogLog.fromBytes(rs.getBytes("registers")));
+        }
+    }
+
+    private void merge(Granularity granularity, List<EndpointHit> hits) {
+        Map<BucketKey, HyperLogLog> sketches = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            sketches.computeIfAbsent(
+                    new BucketKey(hit.getAppId(), hit.getUriId(), granularity.floor(hit.getTimestamp())),
+                    key -> new HyperLogLog()
+            ).add(hit.getIp());
+        }
+
+        List<BucketKey> keys = new ArrayList<>(sketches.keySet());
+        Integer[] appIds = new Integer[keys.size()];
+        Integer[] uriIds = new Integer[keys.size()];
+        Timestamp[] buckets = new Timestamp[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            appIds[i] = keys.get(i).appId();
+            uriIds[i] = keys.get(i).uriId();
+            buckets[i] = Timestamp.valueOf(keys.get(i).bucket());
+        }
+        String table = granularity.getSketchTable();
+        jdbcTemplate.update(String.format(INSERT_MISSING, table), ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("int", appIds));
+            ps.setArray(2, ps.getConnection().createArrayOf("int", uriIds));
+            ps.setArray(3, ps.getConnection().createArrayOf("timestamp", buckets));
+        });
+        jdbcTemplate.query(String.format(SELECT_FOR_UPDATE, table), ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("int", appIds));
+            ps.setArray(2, ps.getConnection().createArrayOf("int", uriIds));
+            ps.setArray(3, ps.getConnection().createArrayOf("timestamp", buckets));
+        }, rs -> {
+            BucketKey key = new BucketKey(
+                    rs.getInt("app_id"), rs.getInt("uri_id"), rs.getTimestamp("bucket").toLocalDateTime());
+            sketches.get(key).merge(HyperLogLog.fromBytes(rs.getBytes("registers")));
+        });
+
+        byte[][] registers = new byte[keys.size()][];
+        for (int i = 0; i < keys.size(); i++) {
+            registers[i] = sketches.get(keys.get(i)).toBytes();
+        }
+        jdbcTemplate.update(String.format(UPDATE, table), ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("int", appIds));
+            ps.setArray(2, ps.getConnection().createArrayOf("int", uriIds));
+            ps.setArray(3, ps.getConnection().createArrayOf("timestamp", buckets));
+            ps.setArray(4, ps.getConnection().createArrayOf("bytea", registers));
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.HitCursor;
+import ru.practicum.model.ViewCount;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public interface StatsRepositoryCustom {
+    void insertAll(List<EndpointHit> hits);
+
+    void forEachHitSince(LocalDateTime since, Consumer<EndpointHit> consumer);
+
+    List<EndpointHit> findHitsAfter(HitCursor after, LocalDateTime start, LocalDateTime end, Integer appId,
+                                    Integer uriId, int limit);
+
+    Stream<ViewCount> findDistinctViewStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds);
+}
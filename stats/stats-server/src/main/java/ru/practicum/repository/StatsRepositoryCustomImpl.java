@@ -0,0 +1,148 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.HitCursor;
+import ru.practicum.model.ViewCount;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class StatsRepositoryCustomImpl implements StatsRepositoryCustom {
+    private static final String COPY_HITS =
+            "copy hits (app_id, uri_id, ip, time_stamp, weight) from stdin (format binary)";
+    private static final byte[] COPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final LocalDateTime POSTGRES_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final short HIT_COLUMNS = 5;
+    private static final int FLUSH_BYTES = 1 << 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Override
+    public void insertAll(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_HITS);
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(FLUSH_BYTES * 2);
+                DataOutputStream out = new DataOutputStream(buffer);
+                out.write(COPY_SIGNATURE);
+                out.writeInt(0);
+                out.writeInt(0);
+                for (EndpointHit hit : hits) {
+                    out.writeShort(HIT_COLUMNS);
+                    out.writeInt(Integer.BYTES);
+                    out.writeInt(hit.getAppId());
+                    out.writeInt(Integer.BYTES);
+                    out.writeInt(hit.getUriId());
+                    out.writeInt(hit.getIp().length);
+                    out.write(hit.getIp());
+                    out.writeInt(Long.BYTES);
+                    out.writeLong(ChronoUnit.MICROS.between(POSTGRES_EPOCH, hit.getTimestamp()));
+                    out.writeInt(Integer.BYTES);
+                    out.writeInt(hit.getWeight());
+                    if (buffer.size() >= FLUSH_BYTES) {
+                        copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                        buffer.reset();
+                    }
+                }
+                out.writeShort(-1);
+                copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                return copyIn.endCopy();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void forEachHitSince(LocalDateTime since, Consumer<EndpointHit> consumer) {
+        jdbcTemplate.query("select id, app_id, uri_id, ip, time_stamp, weight from hits where time_stamp >= ?",
+                (RowCallbackHandler) rs -> consumer.accept(new EndpointHit(
+                        rs.getLong("id"),
+                        rs.getInt("app_id"),
+                        rs.getInt("uri_id"),
+                        rs.getBytes("ip"),
+                        rs.getTimestamp("time_stamp").toLocalDateTime(),
+                        rs.getInt("weight"))),
+                Timestamp.valueOf(since));
+    }
+
+    @Override
+    public List<EndpointHit> findHitsAfter(HitCursor after, LocalDateTime start, LocalDateTime end, Integer appId,
+                                           Integer uriId, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        StringBuilder sql = new StringBuilder(
+                "select id, app_id, uri_id, ip, time_stamp, weight from hits where true");
+        if (after != null) {
+            parameters.addValue("afterTimestamp", Timestamp.valueOf(after.timestamp()));
+            parameters.addValue("afterId", after.id());
+            sql.append(" and (time_stamp, id) > (:afterTimestamp, :afterId)");
+        }
+        if (start != null) {
+            parameters.addValue("start", Timestamp.valueOf(start));
+            sql.append(" and time_stamp >= :start");
+        }
+        if (end != null) {
+            parameters.addValue("end", Timestamp.valueOf(end));
+            sql.append(" and time_stamp <= :end");
+        }
+        if (appId != null) {
+            parameters.addValue("appId", appId);
+            sql.append(" and app_id = :appId");
+        }
+        if (uriId != null) {
+            parameters.addValue("uriId", uriId);
+            sql.append(" and uri_id = :uriId");
+        }
+        sql.append(" order by time_stamp, id limit :limit");
+        return namedJdbcTemplate.query(sql.toString(), parameters, (rs, rowNum) -> new EndpointHit(
+                rs.getLong("id"),
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getBytes("ip"),
+                rs.getTimestamp("time_stamp").toLocalDateTime(),
+                rs.getInt("weight")));
+    }
+
+    @Override
+    public Stream<ViewCount> findDistinctViewStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        String uriFilter = "";
+        if (uriIds != null) {
+            parameters.addValue("uriIds", uriIds);
+            uriFilter = " and uri_id in (:uriIds)";
+        }
+        return namedJdbcTemplate.queryForStream(
+                "select app_id, uri_id, count(distinct ip) as hits from hit_ips "
+                        + "where time_stamp between :start and :end" + uriFilter
+                        + " group by app_id, uri_id order by hits desc",
+                parameters,
+                (rs, rowNum) -> new ViewCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits")));
+    }
+}
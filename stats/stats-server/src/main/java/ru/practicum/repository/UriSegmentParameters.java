@@ -0,0 +1,58 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.UriSegment;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+final class UriSegmentParameters {
+
+    private UriSegmentParameters() {
+    }
+
+    static Map<Granularity, List<UriSegment>> groupByGranularity(List<UriSegment> segments) {
+        return segments.stream().collect(Collectors.groupingBy(
+                segment -> segment.segment().granularity(),
+                () -> new EnumMap<>(Granularity.class),
+                Collectors.toList()));
+    }
+
+    static String bind(MapSqlParameterSource parameters, Granularity granularity, List<UriSegment> segments) {
+        String prefix = granularity.name().toLowerCase();
+        Integer[] uriIds = new Integer[segments.size()];
+        Timestamp[] from = new Timestamp[segments.size()];
+        Timestamp[] to = new Timestamp[segments.size()];
+        for (int i = 0; i < segments.size(); i++) {
+            UriSegment segment = segments.get(i);
+            uriIds[i] = segment.uriId();
+            from[i] = Timestamp.valueOf(segment.segment().from());
+            to[i] = Timestamp.valueOf(segment.segment().to());
+        }
+        parameters.addValue(prefix + "UriIds", array("int", uriIds));
+        parameters.addValue(prefix + "From", array("timestamp", from));
+        parameters.addValue(prefix + "To", array("timestamp", to));
+        parameters.addValue(prefix + "Min", Arrays.stream(from).min(Comparator.naturalOrder()).orElseThrow());
+        parameters.addValue(prefix + "Max", Arrays.stream(to).max(Comparator.naturalOrder()).orElseThrow());
+        return prefix;
+    }
+
+    private static AbstractSqlTypeValue array(String type, Object[] values) {
+        return new AbstractSqlTypeValue() {
+            @Override
+            protected Object createTypeValue(Connection connection, int sqlType, String typeName)
+                    throws SQLException {
+                return connection.createArrayOf(type, values);
+            }
+        };
+    }
+}
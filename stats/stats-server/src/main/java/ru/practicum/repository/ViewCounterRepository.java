@@ -0,0 +1,67 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ViewUpdateDto;
+import ru.practicum.model.ViewCounter;
+import ru.practicum.model.ViewFilter;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class ViewCounterRepository {
+    private static final String UPSERT = """
+            insert into view_counters (uri_id, hits, unique_hits, seq)
+            select uri_id, hits, unique_hits, nextval('view_counters_seq')
+            from unnest(?::int[], ?::bigint[], ?::bigint[]) as v(uri_id, hits, unique_hits)
+            order by uri_id
+            on conflict (uri_id) do update
+            set hits = excluded.hits, unique_hits = excluded.unique_hits, seq = excluded.seq
+            where view_counters.hits <> excluded.hits or view_counters.unique_hits <> excluded.unique_hits
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public void upsert(List<ViewCounter> counters) {
+        if (counters.isEmpty()) {
+            return;
+        }
+        Integer[] uriIds = new Integer[counters.size()];
+        Long[] hits = new Long[counters.size()];
+        Long[] uniqueHits = new Long[counters.size()];
+        for (int i = 0; i < counters.size(); i++) {
+            ViewCounter counter = counters.get(i);
+            uriIds[i] = counter.uriId();
+            hits[i] = counter.hits();
+            uniqueHits[i] = counter.uniqueHits();
+        }
+        jdbcTemplate.update(UPSERT, uriIds, hits, uniqueHits);
+    }
+
+    public List<String> findUntrackedUris() {
+        return jdbcTemplate.queryForList("""
+                select uri from uris u
+                where not exists (select 1 from view_counters c where c.uri_id = u.id)
+                """, String.class);
+    }
+
+    public List<ViewUpdateDto> findUpdatesAfter(long offset, String uriPrefix, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        String filter = uriPrefix == null ? "" : ViewFilterParameters.bind(parameters, new ViewFilter(null, uriPrefix));
+        return namedJdbcTemplate.query("""
+                        select c.seq, u.uri, c.hits, c.unique_hits
+                        from view_counters c join uris u on u.id = c.uri_id
+                        where c.seq > :offset""" + filter + """
+                         order by c.seq
+                        limit :limit
+                        """, parameters,
+                (rs, rowNum) -> new ViewUpdateDto(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getLong(4)));
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import ru.practicum.model.ViewFilter;
+
+final class ViewFilterParameters {
+
+    private ViewFilterParameters() {
+    }
+
+    static String bind(MapSqlParameterSource parameters, ViewFilter filter) {
+        StringBuilder sql = new StringBuilder();
+        if (filter.appId() != null) {
+            parameters.addValue("appId", filter.appId());
+            sql.append(" and app_id = :appId");
+        }
+        if (filter.uriPrefix() != null) {
+            parameters.addValue("uriPrefix", escapeLike(filter.uriPrefix()) + "%");
+            sql.append(" and uri_id in (select id from uris where uri like :uriPrefix)");
+        }
+        return sql.toString();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.WalPosition;
+
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class WalCheckpointRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<WalPosition> find() {
+        return jdbcTemplate.query(
+                "select segment, position from hit_wal_checkpoint where id = 1",
+                (rs, rowNum) -> new WalPosition(rs.getLong("segment"), rs.getInt("position"))
+        ).stream().findFirst();
+    }
+
+    public void save(WalPosition position) {
+        jdbcTemplate.update("""
+                insert into hit_wal_checkpoint (id, segment, position) values (1, ?, ?)
+                on conflict (id) do update set segment = excluded.segment, position = excluded.position
+                """, position.segment(), position.offset());
+    }
+}
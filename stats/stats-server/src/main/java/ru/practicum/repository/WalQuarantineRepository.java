@@ -0,0 +1,18 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@RequiredArgsConstructor
+public class WalQuarantineRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public void save(long segment, int offset, byte[] payload, String error) {
+        jdbcTemplate.update("""
+                insert into hit_wal_quarantine (segment, position, payload, error, quarantined_at)
+                values (?, ?, ?, ?, now())
+                """, segment, offset, payload, error);
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.CompactedChunk;
+import ru.practicum.model.CompactionCheckpoint;
+import ru.practicum.repository.CompactionRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+// Folds raw hits older than the horizon into per-second aggregates (summed weight and distinct IPs) in bounded
+// chunks; every chunk commits together with its checkpoint, so an interrupted run resumes where it stopped.
+// A new run starts once the horizon has moved past the last completed one by the interval
+@Component
+@ConditionalOnProperty(name = "stats.compaction.enabled", havingValue = "true")
+@Slf4j
+public class HitCompactor {
+    private final CompactionRepository compactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration horizon;
+    private final Duration interval;
+    private final int chunkSize;
+    private final Counter hitsCounter;
+    private final Counter chunksCounter;
+    private volatile boolean stopping;
+    private long runHits;
+    private int runChunks;
+    private LocalDateTime idleUntil = LocalDateTime.MIN;
+
+    public HitCompactor(CompactionRepository compactionRepository,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${stats.compaction.horizon:7d}") Duration horizon,
+                        @Value("${stats.compaction.interval:1h}") Duration interval,
+                        @Value("${stats.compaction.chunk-size:5000}") int chunkSize,
+                        MeterRegistry meterRegistry) {
+        if (horizon.isNegative() || horizon.isZero()) {
+            throw new IllegalArgumentException("Compaction horizon must be positive");
+        }
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Compaction interval must be positive");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Compaction chunk size must be positive");
+        }
+        this.compactionRepository = compactionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.horizon = horizon;
+        this.interval = interval;
+        this.chunkSize = chunkSize;
+        this.hitsCounter = meterRegistry.counter("stats.server.compaction.hits");
+        this.chunksCounter = meterRegistry.counter("stats.server.compaction.chunks");
+    }
+
+    // One chunk per tick, so a long run never holds the shared scheduler thread between chunks
+    @Scheduled(initialDelayString = "${stats.compaction.initial-delay-ms:60000}",
+            fixedDelayString = "${stats.compaction.chunk-delay-ms:100}")
+    public void compact() {
+        if (stopping || LocalDateTime.now().isBefore(idleUntil)) {
+            return;
+        }
+        transactionTemplate.execute(status -> compactNext()).ifPresent(chunk -> {
+            hitsCounter.increment(chunk.hits());
+            chunksCounter.increment();
+        });
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        stopping = true;
+    }
+
+    private Optional<CompactedChunk> compactNext() {
+        CompactionCheckpoint checkpoint = compactionRepository.lockCheckpoint();
+        LocalDateTime before = checkpoint.horizon();
+        if (before == null) {
+            before = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minus(horizon);
+            // The watermark survives restarts, so a restarted server doesn't rescan right after the last run
+            if (checkpoint.compactedBefore() != null && before.isBefore(checkpoint.compactedBefore().plus(interval))) {
+                idleUntil = checkpoint.compactedBefore().plus(interval).plus(horizon);
+                return Optional.empty();
+            }
+            log.debug("Starting compaction of raw hits before {}", before);
+            runHits = 0;
+            runChunks = 0;
+        }
+        Optional<CompactedChunk> chunk = compactionRepository.compactChunk(before, checkpoint.cursor(), chunkSize);
+        if (chunk.isPresent()) {
+            compactionRepository.saveCheckpoint(new CompactionCheckpoint(before, chunk.get().last(), null));
+            runHits += chunk.get().hits();
+            runChunks++;
+        } else {
+            compactionRepository.completeRun(before);
+            idleUntil = before.plus(interval).plus(horizon);
+            if (runHits > 0) {
+                log.info("Compacted {} raw hits before {} in {} chunks", runHits, before, runChunks);
+            }
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,240 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.mapstruct.Named;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ViewSketchDto;
+import ru.practicum.ViewStatsDto;
+import ru.practicum.model.ViewCount;
+import ru.practicum.model.ViewKey;
+import ru.practicum.repository.DictionaryRepository;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// New apps and uris are inserted in the caller's transaction, which then sees their ids through a per-transaction
+// pending map; the shared caches only take them after commit, so a rolled-back batch leaves no ids behind that
+// point at missing rows, and a write never needs a second pool connection
+@Component
+@RequiredArgsConstructor
+public class HitDictionary {
+    private final DictionaryRepository dictionaryRepository;
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> appNames = new ConcurrentHashMap<>();
+    private final Map<Integer, String> uris = new ConcurrentHashMap<>();
+
+    public void preload(Collection<String> apps, Collection<String> uriValues) {
+        assign(apps, appIds, appNames, dictionaryRepository::assignAppIds);
+        assign(uriValues, uriIds, uris, dictionaryRepository::assignUriIds);
+    }
+
+    @Named("appId")
+    public Integer appId(String app) {
+        Integer id = idOf(app, appIds);
+        if (id == null) {
+            assign(List.of(app), appIds, appNames, dictionaryRepository::assignAppIds);
+            id = idOf(app, appIds);
+        }
+        return id;
+    }
+
+    @Named("uriId")
+    public Integer uriId(String uri) {
+        Integer id = idOf(uri, uriIds);
+        if (id == null) {
+            assign(List.of(uri), uriIds, uris, dictionaryRepository::assignUriIds);
+            id = idOf(uri, uriIds);
+        }
+        return id;
+    }
+
+    @Named("appName")
+    public String appName(Integer id) {
+        String name = nameOf(id, appIds, appNames);
+        if (name == null) {
+            load(List.of(id), appIds, appNames, dictionaryRepository::findAppNames);
+            name = appNames.get(id);
+        }
+        return name;
+    }
+
+    @Named("uri")
+    public String uri(Integer id) {
+        String uri = nameOf(id, uriIds, uris);
+        if (uri == null) {
+            load(List.of(id), uriIds, uris, dictionaryRepository::findUris);
+            uri = uris.get(id);
+        }
+        return uri;
+    }
+
+    public List<Integer> findUriIds(List<String> uriValues) {
+        Map<String, Integer> found = lookupUriIds(uriValues);
+        return uriValues.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
+
+    public Map<String, Integer> lookupUriIds(Collection<String> uriValues) {
+        Set<String> missing = new HashSet<>();
+        for (String uri : uriValues) {
+            if (!uriIds.containsKey(uri)) {
+                missing.add(uri);
+            }
+        }
+        if (!missing.isEmpty()) {
+            dictionaryRepository.findUriIds(missing).forEach((uri, id) -> {
+                uriIds.put(uri, id);
+                uris.put(id, uri);
+            });
+        }
+        Map<String, Integer> found = new HashMap<>();
+        for (String uri : uriValues) {
+            Integer id = uriIds.get(uri);
+            if (id != null) {
+                found.put(uri, id);
+            }
+        }
+        return found;
+    }
+
+    public Integer lookupAppId(String app) {
+        Integer id = appIds.get(app);
+        if (id == null) {
+            id = dictionaryRepository.findAppIds(List.of(app)).get(app);
+            if (id != null) {
+                appIds.put(app, id);
+                appNames.put(id, app);
+            }
+        }
+        return id;
+    }
+
+    public List<ViewStatsDto> toViewStats(List<ViewCount> counts) {
+        loadNames(counts.stream().map(count -> new ViewKey(count.appId(), count.uriId())).toList());
+        return counts.stream()
+                .map(count -> new ViewStatsDto(appNames.get(count.appId()), uris.get(count.uriId()), count.hits()))
+                .toList();
+    }
+
+    public List<ViewSketchDto> toViewSketches(Map<ViewKey, HyperLogLog> sketches) {
+        loadNames(sketches.keySet());
+        return sketches.entrySet().stream()
+                .map(entry -> new ViewSketchDto(appNames.get(entry.getKey().appId()), uris.get(entry.getKey().uriId()),
+                        entry.getValue().toBytes()))
+                .toList();
+    }
+
+    private void loadNames(Collection<ViewKey> keys) {
+        Set<Integer> missingApps = new HashSet<>();
+        Set<Integer> missingUris = new HashSet<>();
+        for (ViewKey key : keys) {
+            if (!appNames.containsKey(key.appId())) {
+                missingApps.add(key.appId());
+            }
+            if (!uris.containsKey(key.uriId())) {
+                missingUris.add(key.uriId());
+            }
+        }
+        load(missingApps, appIds, appNames, dictionaryRepository::findAppNames);
+        load(missingUris, uriIds, uris, dictionaryRepository::findUris);
+    }
+
+    private void assign(Collection<String> values, Map<String, Integer> ids, Map<Integer, String> names,
+                        Function<Collection<String>, Map<String, Integer>> assigner) {
+        Set<String> missing = new HashSet<>();
+        for (String value : values) {
+            if (idOf(value, ids) == null) {
+                missing.add(value);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> assigned = assigner.apply(missing);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache(assigned, ids, names);
+            return;
+        }
+        pending().get(ids).putAll(assigned);
+    }
+
+    private Integer idOf(String value, Map<String, Integer> ids) {
+        Integer id = ids.get(value);
+        if (id == null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            id = pending().get(ids).get(value);
+        }
+        return id;
+    }
+
+    private String nameOf(Integer id, Map<String, Integer> ids, Map<Integer, String> names) {
+        String name = names.get(id);
+        if (name == null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            for (Map.Entry<String, Integer> entry : pending().get(ids).entrySet()) {
+                if (entry.getValue().equals(id)) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return name;
+    }
+
+    // Ids assigned by the current transaction, keyed by the shared cache they go to once it commits
+    @SuppressWarnings("unchecked")
+    private Map<Map<String, Integer>, Map<String, Integer>> pending() {
+        Map<Map<String, Integer>, Map<String, Integer>> pending =
+                (Map<Map<String, Integer>, Map<String, Integer>>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Map<String, Integer>, Map<String, Integer>> created = new IdentityHashMap<>();
+            created.put(appIds, new HashMap<>());
+            created.put(uriIds, new HashMap<>());
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache(created.get(appIds), appIds, appNames);
+                    cache(created.get(uriIds), uriIds, uris);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(HitDictionary.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    private static void cache(Map<String, Integer> assigned, Map<String, Integer> ids, Map<Integer, String> names) {
+        assigned.forEach((value, id) -> {
+            ids.put(value, id);
+            names.put(id, value);
+        });
+    }
+
+    private void load(Collection<Integer> missing, Map<String, Integer> ids, Map<Integer, String> names,
+                      Function<Collection<Integer>, Map<Integer, String>> loader) {
+        if (missing.isEmpty()) {
+            return;
+        }
+        loader.apply(missing).forEach((id, value) -> {
+            ids.put(value, id);
+            names.put(id, value);
+        });
+    }
+}
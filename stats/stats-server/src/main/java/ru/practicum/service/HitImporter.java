@@ -0,0 +1,55 @@
+package ru.practicum.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.EndpointHitSaveDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HitImporter {
+    private static final int CHUNK_SIZE = 10_000;
+
+    private final StatsService statsService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public long importHits(InputStream input) throws IOException {
+        long total = 0;
+        List<EndpointHitSaveDto> chunk = new ArrayList<>(CHUNK_SIZE);
+        try (MappingIterator<EndpointHitSaveDto> hits = objectMapper.readerFor(EndpointHitSaveDto.class)
+                .readValues(input)) {
+            while (hits.hasNextValue()) {
+                EndpointHitSaveDto hit = hits.nextValue();
+                Set<ConstraintViolation<EndpointHitSaveDto>> violations = validator.validate(hit);
+                if (!violations.isEmpty()) {
+                    log.warn("Import stopped at hit {} after {} saved hits", total + chunk.size() + 1, total);
+                    throw new ConstraintViolationException(violations);
+                }
+                chunk.add(hit);
+                if (chunk.size() == CHUNK_SIZE) {
+                    statsService.saveHits(chunk);
+                    total += chunk.size();
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            statsService.saveHits(chunk);
+            total += chunk.size();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,106 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.EndpointHit;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Thins the count path while writes are slow: within every (app, uri, second) only each factor-th hit is stored and
+// rolled up, weighted by the hits it stands for. Sums stay exact at second precision; unique counts stay exact through
+// the sketches, which still see every hit, while distinct ips over raw rows (exact and sub-hour unique) become
+// a lower bound
+@Component
+@ConditionalOnProperty(name = "stats.sampling.enabled", havingValue = "true")
+@Slf4j
+public class HitSampler {
+    private static final double SMOOTHING = 0.2;
+
+    private final long latencyThresholdNanos;
+    private final int maxFactor;
+    private final Counter storedCounter;
+    private final Counter sampledCounter;
+    private final Counter increaseCounter;
+    private final Counter decreaseCounter;
+    private volatile int factor = 1;
+    private double latencyNanos;
+    private long writes;
+
+    public HitSampler(@Value("${stats.sampling.latency-threshold:500ms}") Duration latencyThreshold,
+                      @Value("${stats.sampling.max-factor:64}") int maxFactor,
+                      MeterRegistry meterRegistry) {
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.maxFactor = maxFactor;
+        this.storedCounter = meterRegistry.counter("stats.server.sampling.stored");
+        this.sampledCounter = meterRegistry.counter("stats.server.sampling.sampled");
+        this.increaseCounter = meterRegistry.counter("stats.server.sampling.adjustments", "direction", "up");
+        this.decreaseCounter = meterRegistry.counter("stats.server.sampling.adjustments", "direction", "down");
+        meterRegistry.gauge("stats.server.sampling.rate", this, sampler -> 1.0 / sampler.factor);
+    }
+
+    public List<EndpointHit> sample(List<EndpointHit> hits) {
+        int current = factor;
+        if (current == 1) {
+            storedCounter.increment(hits.size());
+            return hits;
+        }
+        Map<SecondKey, List<EndpointHit>> groups = new LinkedHashMap<>();
+        for (EndpointHit hit : hits) {
+            groups.computeIfAbsent(new SecondKey(hit.getAppId(), hit.getUriId(),
+                    hit.getTimestamp().toEpochSecond(ZoneOffset.UTC)), key -> new ArrayList<>()).add(hit);
+        }
+        List<EndpointHit> stored = new ArrayList<>(hits.size() / current + groups.size());
+        for (List<EndpointHit> group : groups.values()) {
+            for (int i = 0; i < group.size(); i += current) {
+                EndpointHit hit = group.get(i);
+                int weight = 0;
+                for (int j = i; j < Math.min(i + current, group.size()); j++) {
+                    weight += group.get(j).getWeight();
+                }
+                stored.add(new EndpointHit(null, hit.getAppId(), hit.getUriId(), hit.getIp(), hit.getTimestamp(),
+                        weight));
+            }
+        }
+        storedCounter.increment(stored.size());
+        sampledCounter.increment(hits.size() - stored.size());
+        return stored;
+    }
+
+    public synchronized void recordWrite(long nanos) {
+        latencyNanos = latencyNanos == 0 ? nanos : latencyNanos + SMOOTHING * (nanos - latencyNanos);
+        writes++;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.sampling.adjust-delay-ms:1000}")
+    public synchronized void adjust() {
+        if (writes == 0) {
+            latencyNanos /= 2;
+        }
+        writes = 0;
+        int current = factor;
+        if (latencyNanos > latencyThresholdNanos && current < maxFactor) {
+            factor = current * 2;
+            increaseCounter.increment();
+        } else if (latencyNanos < latencyThresholdNanos / 2.0 && current > 1) {
+            factor = current / 2;
+            decreaseCounter.increment();
+        }
+        if (factor != current) {
+            log.info("Hit sampling rate changed to 1/{} at write latency {} ms", factor,
+                    Math.round(latencyNanos / 1_000_000));
+        }
+    }
+
+    private record SecondKey(int appId, int uriId, long second) {
+    }
+}
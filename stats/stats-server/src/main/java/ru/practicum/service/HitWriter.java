@@ -0,0 +1,68 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.EndpointHitSaveDto;
+import ru.practicum.mapper.EndpointHitMapper;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.RollupRepository;
+import ru.practicum.repository.SketchRepository;
+import ru.practicum.repository.StatsRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@RequiredArgsConstructor
+public class HitWriter {
+    private final StatsRepository statsRepository;
+    private final RollupRepository rollupRepository;
+    private final SketchRepository sketchRepository;
+    private final HitDictionary hitDictionary;
+    private final EndpointHitMapper hitMapper;
+    private final Optional<HotWindow> hotWindow;
+    private final Optional<StatsCache> statsCache;
+    private final Optional<HitSampler> hitSampler;
+    private final Optional<ViewCounterPublisher> viewCounterPublisher;
+
+    @Transactional
+    public void write(List<EndpointHitSaveDto> hitSaveDtos) {
+        long started = System.nanoTime();
+        hitDictionary.preload(
+                hitSaveDtos.stream().map(EndpointHitSaveDto::getApp).toList(),
+                hitSaveDtos.stream().map(EndpointHitSaveDto::getUri).toList());
+        List<EndpointHit> hits = hitMapper.mapToEndpointHits(hitSaveDtos);
+        List<EndpointHit> sampled = sample(hits);
+        statsRepository.insertAll(sampled);
+        aggregate(hits, sampled, hitSaveDtos, started);
+    }
+
+    // A single hit has nothing to be folded into, but it still goes through the sampler's accounting and feeds
+    // the write latency signal like a batch does
+    @Transactional
+    public EndpointHit write(EndpointHitSaveDto hitSaveDto) {
+        long started = System.nanoTime();
+        EndpointHit hit = statsRepository.save(sample(List.of(hitMapper.mapToEndpointHit(hitSaveDto))).getFirst());
+        aggregate(List.of(hit), List.of(hit), List.of(hitSaveDto), started);
+        return hit;
+    }
+
+    private List<EndpointHit> sample(List<EndpointHit> hits) {
+        return hitSampler.map(sampler -> sampler.sample(hits)).orElse(hits);
+    }
+
+    // Counts only need the weighted sample, but the sketches and the hot window keep every ip so unique counts
+    // over them stay complete
+    private void aggregate(List<EndpointHit> hits, List<EndpointHit> sampled, List<EndpointHitSaveDto> hitSaveDtos,
+                           long started) {
+        rollupRepository.increment(sampled);
+        sketchRepository.merge(hits);
+        hotWindow.ifPresent(window -> window.addAfterCommit(hits));
+        statsCache.ifPresent(cache -> cache.invalidateAfterCommit(
+                hitSaveDtos.stream().map(EndpointHitSaveDto::getUri).toList()));
+        viewCounterPublisher.ifPresent(publisher -> publisher.markAfterCommit(
+                hitSaveDtos.stream().map(EndpointHitSaveDto::getUri).toList()));
+        hitSampler.ifPresent(sampler -> sampler.recordWrite(System.nanoTime() - started));
+    }
+}
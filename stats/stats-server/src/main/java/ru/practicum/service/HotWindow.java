@@ -0,0 +1,172 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.ViewKey;
+import ru.practicum.repository.StatsRepository;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// Per-second hit counters and IP hash sets for every (app, uri) seen since getStart(); older seconds live only in
+// the DB
+@Component
+@ConditionalOnProperty(name = "stats.hot-window.enabled", havingValue = "true")
+@Slf4j
+public class HotWindow {
+    private static final int STRIPES = 64;
+    private static final Duration EVICTION_GRACE = Duration.ofMinutes(1);
+
+    private final Duration length;
+    private final StatsRepository statsRepository;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private volatile LocalDateTime start;
+
+    public HotWindow(@Value("${stats.hot-window.length:10m}") Duration length, StatsRepository statsRepository) {
+        this.length = length;
+        this.statsRepository = statsRepository;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minus(length);
+        long[] loaded = new long[1];
+        statsRepository.forEachHitSince(start, hit -> {
+            add(hit);
+            loaded[0]++;
+        });
+        log.info("Hot window of {} loaded with {} hits since {}", length, loaded[0], start);
+    }
+
+    public static Function<Integer, LocalDateTime> sameStart(Collection<Integer> uriIds, LocalDateTime from) {
+        if (uriIds == null) {
+            return uriId -> from;
+        }
+        Set<Integer> filter = new HashSet<>(uriIds);
+        return uriId -> filter.contains(uriId) ? from : null;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public void addAfterCommit(List<EndpointHit> hits) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            hits.forEach(this::add);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                hits.forEach(HotWindow.this::add);
+            }
+        });
+    }
+
+    public void mergeCounts(Map<ViewKey, Long> counts, Function<Integer, LocalDateTime> fromByUri,
+                            LocalDateTime to) {
+        scan(fromByUri, to, (key, bucket) -> counts.merge(key, bucket.hits, Long::sum));
+    }
+
+    public void mergeSketches(Map<ViewKey, HyperLogLog> sketches, Function<Integer, LocalDateTime> fromByUri,
+                              LocalDateTime to) {
+        scan(fromByUri, to, (key, bucket) -> {
+            HyperLogLog sketch = sketches.computeIfAbsent(key, k -> new HyperLogLog());
+            bucket.ipHashes.forEach(sketch::addHash);
+        });
+    }
+
+    @Scheduled(fixedDelay = 10_000)
+    public void evict() {
+        LocalDateTime newStart = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minus(length);
+        if (newStart.isAfter(start)) {
+            start = newStart;
+        }
+        long evictBefore = epochSecond(start.minus(EVICTION_GRACE));
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.seconds.values().removeIf(seconds -> {
+                    seconds.headMap(evictBefore).clear();
+                    return seconds.isEmpty();
+                });
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private void add(EndpointHit hit) {
+        long second = epochSecond(hit.getTimestamp());
+        if (second < epochSecond(start.minus(EVICTION_GRACE))) {
+            return;
+        }
+        ViewKey key = new ViewKey(hit.getAppId(), hit.getUriId());
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        stripe.lock.lock();
+        try {
+            Bucket bucket = stripe.seconds.computeIfAbsent(key, k -> new TreeMap<>())
+                    .computeIfAbsent(second, s -> new Bucket());
+            bucket.hits += hit.getWeight();
+            bucket.ipHashes.add(HyperLogLog.hash(hit.getIp()));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void scan(Function<Integer, LocalDateTime> fromByUri, LocalDateTime to,
+                      BiConsumer<ViewKey, Bucket> visitor) {
+        long toSecond = epochSecond(to);
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.seconds.forEach((key, seconds) -> {
+                    LocalDateTime from = fromByUri.apply(key.uriId());
+                    if (from != null && from.isBefore(to)) {
+                        seconds.subMap(epochSecond(from), toSecond).values()
+                                .forEach(bucket -> visitor.accept(key, bucket));
+                    }
+                });
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private static long epochSecond(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<ViewKey, TreeMap<Long, Bucket>> seconds = new HashMap<>();
+    }
+
+    private static class Bucket {
+        private long hits;
+        private final Set<Long> ipHashes = new HashSet<>();
+    }
+}
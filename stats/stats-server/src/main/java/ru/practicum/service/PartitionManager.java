@@ -0,0 +1,118 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.HitPartition;
+import ru.practicum.repository.PartitionRepository;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+@Component
+@Slf4j
+public class PartitionManager {
+    private final PartitionRepository partitionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ChronoUnit interval;
+    private final int precreateDays;
+    private final int retentionDays;
+    private final long retryDelayMs;
+    private volatile boolean due = true;
+
+    public PartitionManager(PartitionRepository partitionRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${stats.partitioning.interval:DAYS}") ChronoUnit interval,
+                            @Value("${stats.partitioning.precreate-days:7}") int precreateDays,
+                            @Value("${stats.partitioning.retention-days:0}") int retentionDays,
+                            @Value("${stats.partitioning.retry-delay-ms:60000}") long retryDelayMs) {
+        if (interval != ChronoUnit.DAYS && interval != ChronoUnit.WEEKS && interval != ChronoUnit.MONTHS) {
+            throw new IllegalArgumentException("Unsupported partitioning interval " + interval);
+        }
+        this.partitionRepository = partitionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.interval = interval;
+        this.precreateDays = precreateDays;
+        this.retentionDays = retentionDays;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    // Runs right after startup and again only while the last maintenance failed, so a database that is down at
+    // boot or at the nightly run neither stops the server nor leaves partitions missing until the next cron tick
+    @Scheduled(initialDelay = 0, fixedDelayString = "${stats.partitioning.retry-delay-ms:60000}")
+    public void retry() {
+        if (due) {
+            maintain();
+        }
+    }
+
+    @Scheduled(cron = "${stats.partitioning.cron:0 5 0 * * *}")
+    public void maintain() {
+        try {
+            if (!partitionRepository.isPartitioned()) {
+                if (due) {
+                    log.warn("Table hits is not partitioned, partition management is disabled");
+                }
+                due = false;
+                return;
+            }
+            partitionRepository.createDefaultPartition();
+            LocalDateTime now = LocalDateTime.now();
+            createFuturePartitions(now);
+            if (retentionDays > 0) {
+                dropExpiredPartitions(now.truncatedTo(ChronoUnit.DAYS).minusDays(retentionDays));
+            }
+            due = false;
+        } catch (RuntimeException e) {
+            due = true;
+            log.warn("Hits partition maintenance failed, retrying in {} ms: {}", retryDelayMs, e.getMessage());
+        }
+    }
+
+    private void createFuturePartitions(LocalDateTime now) {
+        List<HitPartition> partitions = partitionRepository.findPartitions();
+        LocalDateTime first = partitionRepository.findDefaultPartitionStart()
+                .filter(start -> start.isBefore(now))
+                .orElse(now);
+        LocalDateTime horizon = now.plusDays(precreateDays);
+        for (LocalDateTime from = floor(first); from.isBefore(horizon); from = from.plus(1, interval)) {
+            LocalDateTime start = from;
+            LocalDateTime end = from.plus(1, interval);
+            boolean exists = partitions.stream()
+                    .anyMatch(partition -> partition.from().isBefore(end) && start.isBefore(partition.to()));
+            if (!exists) {
+                HitPartition partition = transactionTemplate.execute(
+                        status -> partitionRepository.createPartition(start, end));
+                log.info("Created hits partition {}", partition);
+            }
+        }
+    }
+
+    private void dropExpiredPartitions(LocalDateTime cutoff) {
+        for (HitPartition partition : partitionRepository.findPartitions()) {
+            if (!partition.to().isAfter(cutoff)) {
+                transactionTemplate.executeWithoutResult(status -> partitionRepository.dropPartition(partition));
+                log.info("Dropped expired hits partition {}", partition);
+            }
+        }
+        int deleted = partitionRepository.deleteFromDefaultBefore(cutoff);
+        if (deleted > 0) {
+            log.info("Deleted {} expired hits from the default partition", deleted);
+        }
+    }
+
+    private LocalDateTime floor(LocalDateTime dateTime) {
+        LocalDate date = dateTime.toLocalDate();
+        return switch (interval) {
+            case WEEKS -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            case MONTHS -> date.withDayOfMonth(1).atStartOfDay();
+            default -> date.atStartOfDay();
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package ru.practicum.service;
+
+import ru.practicum.model.Granularity;
+import ru.practicum.model.TimeSegment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class RollupPlanner {
+    private RollupPlanner() {
+
+    }
+
+    // Covers [from, to) with the coarsest whole buckets, leaving only the ragged edges to finer levels
+    public static List<TimeSegment> plan(LocalDateTime from, LocalDateTime to) {
+        return plan(from, to, Granularity.values());
+    }
+
+    public static List<TimeSegment> planSketches(LocalDateTime from, LocalDateTime to) {
+        return plan(from, to, Arrays.stream(Granularity.values())
+                .filter(granularity -> granularity.hasSketch() || granularity == Granularity.RAW)
+                .toArray(Granularity[]::new));
+    }
+
+    public static List<TimeSegment> planBuckets(LocalDateTime from, LocalDateTime to, Granularity width) {
+        return plan(from, to, Arrays.stream(Granularity.values())
+                .filter(granularity -> granularity.compareTo(width) >= 0)
+                .toArray(Granularity[]::new));
+    }
+
+    private static List<TimeSegment> plan(LocalDateTime from, LocalDateTime to, Granularity[] levels) {
+        List<TimeSegment> segments = new ArrayList<>();
+        plan(from, to, levels, 0, segments);
+        return segments;
+    }
+
+    private static void plan(LocalDateTime from, LocalDateTime to, Granularity[] levels, int level,
+                             List<TimeSegment> segments) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        Granularity granularity = levels[level];
+        if (granularity == Granularity.RAW) {
+            segments.add(new TimeSegment(granularity, from, to));
+            return;
+        }
+        LocalDateTime alignedFrom = granularity.ceil(from);
+        LocalDateTime alignedTo = granularity.floor(to);
+        if (!alignedFrom.isBefore(alignedTo)) {
+            plan(from, to, levels, level + 1, segments);
+            return;
+        }
+        plan(from, alignedFrom, levels, level + 1, segments);
+        segments.add(new TimeSegment(granularity, alignedFrom, alignedTo));
+        plan(alignedTo, to, levels, level + 1, segments);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.SketchRepository;
+import ru.practicum.repository.StatsRepository;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SketchBackfill {
+    private static final int PAGE_SIZE = 10_000;
+
+    private final StatsRepository statsRepository;
+    private final SketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!sketchRepository.isEmpty()) {
+            return;
+        }
+        log.info("Building unique-IP sketches from existing hits");
+        long lastId = 0;
+        long total = 0;
+        List<EndpointHit> page;
+        do {
+            page = statsRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(PAGE_SIZE));
+            if (!page.isEmpty()) {
+                List<EndpointHit> hits = page;
+                transactionTemplate.executeWithoutResult(status -> sketchRepository.merge(hits));
+                lastId = page.getLast().getId();
+                total += page.size();
+            }
+        } while (page.size() == PAGE_SIZE);
+        log.info("Unique-IP sketches built from {} hits", total);
+    }
+}
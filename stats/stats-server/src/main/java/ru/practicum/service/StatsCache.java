@@ -0,0 +1,191 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+
+// LRU of /stats results keyed by quantized ranges; a version stamp taken before loading keeps a result computed
+// concurrently with an invalidation out of the cache
+@Component
+@ConditionalOnProperty(name = "stats.cache.enabled", havingValue = "true")
+@Slf4j
+public class StatsCache {
+    private static final int VERSION_STRIPES = 256;
+
+    private final long granularitySeconds;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Key>> keysByUri = new HashMap<>();
+    private final Set<Key> allUriKeys = new HashSet<>();
+    private final AtomicLongArray uriVersions = new AtomicLongArray(VERSION_STRIPES);
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter evictionCounter;
+    private final Counter invalidationCounter;
+
+    public StatsCache(@Value("${stats.cache.granularity:1m}") Duration granularity,
+                      @Value("${stats.cache.max-size:10000}") int maxSize,
+                      @Value("${stats.cache.ttl:30s}") Duration ttl,
+                      MeterRegistry meterRegistry) {
+        this.granularitySeconds = Math.max(1, granularity.toSeconds());
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.hitCounter = meterRegistry.counter("stats.server.cache.hits");
+        this.missCounter = meterRegistry.counter("stats.server.cache.misses");
+        this.evictionCounter = meterRegistry.counter("stats.server.cache.evictions");
+        this.invalidationCounter = meterRegistry.counter("stats.server.cache.invalidations");
+        meterRegistry.gauge("stats.server.cache.size", this, StatsCache::size);
+        log.info("Stats cache enabled: granularity {}, max size {}, ttl {}", granularity, maxSize, ttl);
+    }
+
+    public List<ViewStatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                  boolean exact, BiFunction<LocalDateTime, LocalDateTime, List<ViewStatsDto>> loader) {
+        List<String> sortedUris = uris == null ? null : uris.stream().distinct().sorted().toList();
+        Key key = new Key(floor(start), lastSecond(end), sortedUris, unique, exact);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hitCounter.increment();
+                    return entry.stats;
+                }
+                remove(key);
+            }
+        }
+        missCounter.increment();
+        long version = version(key);
+        List<ViewStatsDto> stats = List.copyOf(loader.apply(key.start, key.end));
+        synchronized (this) {
+            if (version(key) == version) {
+                put(key, new Entry(stats, System.nanoTime()));
+            }
+        }
+        return stats;
+    }
+
+    public void invalidateAfterCommit(Collection<String> uris) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(uris);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(uris);
+            }
+        });
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void invalidate(Collection<String> uris) {
+        Set<String> distinct = new HashSet<>(uris);
+        distinct.forEach(uri -> uriVersions.incrementAndGet(stripe(uri)));
+        globalVersion.incrementAndGet();
+        synchronized (this) {
+            Set<Key> stale = new HashSet<>(allUriKeys);
+            for (String uri : distinct) {
+                Set<Key> keys = keysByUri.get(uri);
+                if (keys != null) {
+                    stale.addAll(keys);
+                }
+            }
+            stale.forEach(this::remove);
+            invalidationCounter.increment(stale.size());
+        }
+    }
+
+    private void put(Key key, Entry entry) {
+        if (entries.put(key, entry) == null) {
+            if (key.uris == null) {
+                allUriKeys.add(key);
+            } else {
+                key.uris.forEach(uri -> keysByUri.computeIfAbsent(uri, u -> new HashSet<>()).add(key));
+            }
+        }
+        Iterator<Key> eldest = entries.keySet().iterator();
+        while (entries.size() > maxSize) {
+            Key evicted = eldest.next();
+            eldest.remove();
+            unindex(evicted);
+            evictionCounter.increment();
+        }
+    }
+
+    private void remove(Key key) {
+        if (entries.remove(key) != null) {
+            unindex(key);
+        }
+    }
+
+    private void unindex(Key key) {
+        if (key.uris == null) {
+            allUriKeys.remove(key);
+            return;
+        }
+        for (String uri : key.uris) {
+            Set<Key> keys = keysByUri.get(uri);
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByUri.remove(uri);
+            }
+        }
+    }
+
+    private long version(Key key) {
+        if (key.uris == null) {
+            return globalVersion.get();
+        }
+        long version = 0;
+        for (String uri : key.uris) {
+            version += uriVersions.get(stripe(uri));
+        }
+        return version;
+    }
+
+    private LocalDateTime floor(LocalDateTime timestamp) {
+        long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(seconds, granularitySeconds) * granularitySeconds, 0,
+                ZoneOffset.UTC);
+    }
+
+    private LocalDateTime lastSecond(LocalDateTime timestamp) {
+        LocalDateTime floor = floor(timestamp);
+        return floor.equals(timestamp) ? floor : floor.plusSeconds(granularitySeconds - 1);
+    }
+
+    private static int stripe(String uri) {
+        return Math.floorMod(uri.hashCode(), VERSION_STRIPES);
+    }
+
+    private record Key(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean exact) {
+    }
+
+    private record Entry(List<ViewStatsDto> stats, long loadedAt) {
+    }
+}
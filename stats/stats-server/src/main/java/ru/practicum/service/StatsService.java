@@ -2,13 +2,39 @@ package ru.practicum.service;
 
 import ru.practicum.EndpointHitDto;
 import ru.practicum.EndpointHitSaveDto;
+import ru.practicum.HitPageDto;
+import ru.practicum.ViewBucketDto;
+import ru.practicum.ViewSketchDto;
 import ru.practicum.ViewStatsDto;
+import ru.practicum.ViewsRequestDto;
+import ru.practicum.model.Granularity;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
     EndpointHitDto saveHit(EndpointHitSaveDto hitSaveDto);
 
-    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique);
+    void saveHits(List<EndpointHitSaveDto> hitSaveDtos);
+
+    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                Boolean exact);
+
+    void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact,
+                     Consumer<ViewStatsDto> consumer);
+
+    List<ViewStatsDto> getViews(ViewsRequestDto viewsRequestDto);
+
+    List<ViewSketchDto> getSketches(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    List<ViewSketchDto> getViewSketches(ViewsRequestDto viewsRequestDto);
+
+    HitPageDto exportHits(LocalDateTime start, LocalDateTime end, String app, String uri, String cursor, int limit);
+
+    List<ViewBucketDto> getTimeSeries(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                      Granularity bucket);
+
+    List<ViewStatsDto> getTopStats(LocalDateTime start, LocalDateTime end, int limit, String app, String uriPrefix,
+                                   Boolean unique);
 }
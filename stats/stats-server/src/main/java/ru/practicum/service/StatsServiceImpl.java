@@ -5,39 +5,378 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.EndpointHitDto;
 import ru.practicum.EndpointHitSaveDto;
+import ru.practicum.HitPageDto;
+import ru.practicum.UriStartDto;
+import ru.practicum.ViewBucketDto;
+import ru.practicum.ViewSketchDto;
 import ru.practicum.ViewStatsDto;
+import ru.practicum.ViewsRequestDto;
+import ru.practicum.exception.InvalidBucketException;
 import ru.practicum.exception.InvalidDateException;
 import ru.practicum.mapper.EndpointHitMapper;
 import ru.practicum.model.EndpointHit;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.HitCursor;
+import ru.practicum.model.TimeSegment;
+import ru.practicum.model.UriSegment;
+import ru.practicum.model.ViewCount;
+import ru.practicum.model.ViewFilter;
+import ru.practicum.model.ViewKey;
+import ru.practicum.repository.RollupRepository;
+import ru.practicum.repository.SketchRepository;
 import ru.practicum.repository.StatsRepository;
+import ru.practicum.sketch.HyperLogLog;
+import ru.practicum.util.IpAddressCodec;
+import ru.practicum.wal.HitWal;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class StatsServiceImpl implements StatsService {
+    private static final int DECODE_CHUNK_SIZE = 500;
+    private static final int MAX_TIME_SERIES_BUCKETS = 1000;
+    private static final int MAX_TIME_SERIES_ROWS = 100_000;
+
     private final StatsRepository statsRepository;
+    private final RollupRepository rollupRepository;
+    private final SketchRepository sketchRepository;
+    private final HitDictionary hitDictionary;
     private final EndpointHitMapper hitMapper;
+    private final HitWriter hitWriter;
+    private final Optional<HitWal> hitWal;
+    private final Optional<HotWindow> hotWindow;
+    private final Optional<StatsCache> statsCache;
 
     @Override
     @Transactional
     public EndpointHitDto saveHit(EndpointHitSaveDto hitSaveDto) {
-        EndpointHit endpointHit = hitMapper.mapToEndpointHit(hitSaveDto);
-        return hitMapper.mapToEndpointHitDto(statsRepository.save(endpointHit));
+        if (hitWal.isPresent()) {
+            IpAddressCodec.encode(hitSaveDto.getIp());
+            hitWal.get().append(List.of(hitSaveDto));
+            return hitMapper.mapToEndpointHitDto(hitSaveDto);
+        }
+        return hitMapper.mapToEndpointHitDto(hitWriter.write(hitSaveDto));
+    }
+
+    @Override
+    public void saveHits(List<EndpointHitSaveDto> hitSaveDtos) {
+        if (hitWal.isPresent()) {
+            hitSaveDtos.forEach(hit -> IpAddressCodec.encode(hit.getIp()));
+            hitWal.get().append(hitSaveDtos);
+            return;
+        }
+        hitWriter.write(hitSaveDtos);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                       Boolean exact) {
+        if (statsCache.isEmpty()) {
+            return collectStats(start, end, uris, unique, exact);
+        }
+        validateRange(start, end);
+        return statsCache.get().get(start, end, uris, unique, exact,
+                (from, to) -> collectStats(from, to, uris, unique, exact));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact,
+                            Consumer<ViewStatsDto> consumer) {
+        validateRange(start, end);
+
+        List<Integer> uriIds = uris == null ? null : hitDictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return;
+        }
+        List<ViewCount> chunk = new ArrayList<>(DECODE_CHUNK_SIZE);
+        forEachViewCount(start, end, uriIds, unique, exact, count -> {
+            chunk.add(count);
+            if (chunk.size() == DECODE_CHUNK_SIZE) {
+                hitDictionary.toViewStats(chunk).forEach(consumer);
+                chunk.clear();
+            }
+        });
+        hitDictionary.toViewStats(chunk).forEach(consumer);
+    }
+
+    @Override
+    public List<ViewStatsDto> getViews(ViewsRequestDto viewsRequestDto) {
+        Map<String, LocalDateTime> starts = viewStarts(viewsRequestDto);
+        LocalDateTime to = exclusiveEnd(viewsRequestDto.getEnd());
+        if (Boolean.TRUE.equals(viewsRequestDto.getUnique())) {
+            return hitDictionary.toViewStats(estimate(viewSketches(starts, to)));
+        }
+        List<UriSegment> segments = new ArrayList<>();
+        Map<Integer, LocalDateTime> hotFrom = new HashMap<>();
+        planViews(starts, to, false, segments, hotFrom);
+        List<ViewCount> counts = rollupRepository.findViewCounts(segments);
+        if (!hotFrom.isEmpty()) {
+            Map<ViewKey, Long> merged = toMap(counts);
+            hotWindow.orElseThrow().mergeCounts(merged, hotFrom::get, to);
+            counts = sorted(merged);
+        }
+        return hitDictionary.toViewStats(counts);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewSketchDto> getSketches(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        validateRange(start, end);
+        List<Integer> uriIds = uris == null ? null : hitDictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+        return hitDictionary.toViewSketches(uniqueSketches(inclusiveStart(start), exclusiveEnd(end), uriIds));
+    }
+
+    @Override
+    public List<ViewSketchDto> getViewSketches(ViewsRequestDto viewsRequestDto) {
+        Map<String, LocalDateTime> starts = viewStarts(viewsRequestDto);
+        return hitDictionary.toViewSketches(viewSketches(starts, exclusiveEnd(viewsRequestDto.getEnd())));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public HitPageDto exportHits(LocalDateTime start, LocalDateTime end, String app, String uri, String cursor,
+                                 int limit) {
+        validateRange(start, end);
+        HitCursor after = cursor == null ? null : HitCursor.parse(cursor);
+        Integer appId = app == null ? null : hitDictionary.lookupAppId(app);
+        Integer uriId = uri == null ? null : hitDictionary.lookupUriIds(List.of(uri)).get(uri);
+        if ((app != null && appId == null) || (uri != null && uriId == null)) {
+            return new HitPageDto(List.of(), cursor);
+        }
+        List<EndpointHit> hits = statsRepository.findHitsAfter(after, start, end, appId, uriId, limit);
+        String nextCursor = hits.isEmpty() ? cursor : HitCursor.of(hits.getLast()).toToken();
+        return new HitPageDto(hits.stream().map(hitMapper::mapToEndpointHitDto).toList(), nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewBucketDto> getTimeSeries(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                             Granularity bucket) {
+        validateRange(start, end);
+        if (!bucket.isRollup()) {
+            throw new InvalidBucketException("Bucket must be one of MINUTE, HOUR, DAY");
+        }
+        LocalDateTime from = inclusiveStart(start);
+        LocalDateTime to = exclusiveEnd(end);
+        long buckets = bucket.getUnit().between(bucket.floor(from), bucket.ceil(to));
+        if (buckets > MAX_TIME_SERIES_BUCKETS) {
+            throw new InvalidBucketException(String.format("Range spans %d %s buckets, at most %d are allowed",
+                    buckets, bucket, MAX_TIME_SERIES_BUCKETS));
+        }
+        List<Integer> uriIds = uris == null ? null : hitDictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+        if (uriIds != null && buckets * uriIds.size() > MAX_TIME_SERIES_ROWS) {
+            throw new InvalidBucketException(String.format("%d %s buckets for %d uris exceed %d rows",
+                    buckets, bucket, uriIds.size(), MAX_TIME_SERIES_ROWS));
+        }
+        // Without uris the row count depends on how many uris had hits, so the query reads one row past the cap
+        List<ViewBucketDto> series = new ArrayList<>();
+        rollupRepository.findBucketCounts(RollupPlanner.planBuckets(from, to, bucket), uriIds, bucket,
+                MAX_TIME_SERIES_ROWS + 1, count -> series.add(new ViewBucketDto(hitDictionary.appName(count.appId()),
+                        hitDictionary.uri(count.uriId()), count.bucket(), count.hits())));
+        if (series.size() > MAX_TIME_SERIES_ROWS) {
+            throw new InvalidBucketException(String.format(
+                    "Time series exceeds %d rows, narrow the range, use a wider bucket or pass uris",
+                    MAX_TIME_SERIES_ROWS));
+        }
+        return series;
     }
 
     @Override
-    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    @Transactional(readOnly = true)
+    public List<ViewStatsDto> getTopStats(LocalDateTime start, LocalDateTime end, int limit, String app,
+                                          String uriPrefix, Boolean unique) {
+        if (end.isBefore(start)) {
+            throw new InvalidDateException("End date can't be before start date");
+        }
+        Integer appId = null;
+        if (app != null) {
+            appId = hitDictionary.lookupAppId(app);
+            if (appId == null) {
+                return List.of();
+            }
+        }
+        ViewFilter filter = new ViewFilter(appId, uriPrefix);
+        LocalDateTime from = inclusiveStart(start);
+        LocalDateTime to = exclusiveEnd(end);
+        LocalDateTime split = hotSplit(from, to);
+        TopViewCounts top = new TopViewCounts(limit);
+        if (unique) {
+            Map<ViewKey, HyperLogLog> hot = new HashMap<>();
+            if (split.isBefore(to)) {
+                hotWindow.orElseThrow().mergeSketches(hot, HotWindow.sameStart(null, split), to);
+                retainMatching(hot, filter);
+            }
+            sketchRepository.findUniqueSketches(RollupPlanner.planSketches(from, split), filter, (key, sketch) -> {
+                HyperLogLog recent = hot.remove(key);
+                if (recent != null) {
+                    sketch.merge(recent);
+                }
+                top.offer(new ViewCount(key.appId(), key.uriId(), sketch.estimate()));
+            });
+            hot.forEach((key, sketch) -> top.offer(new ViewCount(key.appId(), key.uriId(), sketch.estimate())));
+        } else {
+            Map<ViewKey, Long> hot = new HashMap<>();
+            if (split.isBefore(to)) {
+                hotWindow.orElseThrow().mergeCounts(hot, HotWindow.sameStart(null, split), to);
+                retainMatching(hot, filter);
+            }
+            rollupRepository.findViewCounts(RollupPlanner.plan(from, split), filter, count -> {
+                Long recent = hot.remove(new ViewKey(count.appId(), count.uriId()));
+                top.offer(recent == null ? count : new ViewCount(count.appId(), count.uriId(), count.hits() + recent));
+            });
+            hot.forEach((key, hits) -> top.offer(new ViewCount(key.appId(), key.uriId(), hits)));
+        }
+        return hitDictionary.toViewStats(top.toList());
+    }
+
+    private List<ViewStatsDto> collectStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                            Boolean unique, Boolean exact) {
+        List<ViewStatsDto> stats = new ArrayList<>();
+        streamStats(start, end, uris, unique, exact, stats::add);
+        return stats;
+    }
+
+    private void forEachViewCount(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                  Boolean unique, Boolean exact, Consumer<ViewCount> consumer) {
+        if (unique && exact) {
+            try (Stream<ViewCount> counts = statsRepository.findDistinctViewStats(start, end, uriIds)) {
+                counts.forEach(consumer);
+            }
+            return;
+        }
+        LocalDateTime from = inclusiveStart(start);
+        LocalDateTime to = exclusiveEnd(end);
+        if (unique) {
+            estimate(uniqueSketches(from, to, uriIds)).forEach(consumer);
+            return;
+        }
+        LocalDateTime split = hotSplit(from, to);
+        if (!split.isBefore(to)) {
+            rollupRepository.findViewCounts(RollupPlanner.plan(from, to), uriIds, consumer);
+            return;
+        }
+        Map<ViewKey, Long> counts = new HashMap<>();
+        rollupRepository.findViewCounts(RollupPlanner.plan(from, split), uriIds,
+                count -> counts.merge(new ViewKey(count.appId(), count.uriId()), count.hits(), Long::sum));
+        hotWindow.orElseThrow().mergeCounts(counts, HotWindow.sameStart(uriIds, split), to);
+        sorted(counts).forEach(consumer);
+    }
+
+    private Map<ViewKey, HyperLogLog> uniqueSketches(LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        LocalDateTime split = hotSplit(from, to);
+        Map<ViewKey, HyperLogLog> sketches = sketchRepository.findUniqueSketches(
+                RollupPlanner.planSketches(from, split), uriIds);
+        if (split.isBefore(to)) {
+            hotWindow.orElseThrow().mergeSketches(sketches, HotWindow.sameStart(uriIds, split), to);
+        }
+        return sketches;
+    }
+
+    private Map<ViewKey, HyperLogLog> viewSketches(Map<String, LocalDateTime> starts, LocalDateTime to) {
+        List<UriSegment> segments = new ArrayList<>();
+        Map<Integer, LocalDateTime> hotFrom = new HashMap<>();
+        planViews(starts, to, true, segments, hotFrom);
+        Map<ViewKey, HyperLogLog> sketches = sketchRepository.findUniqueSketches(segments);
+        if (!hotFrom.isEmpty()) {
+            hotWindow.orElseThrow().mergeSketches(sketches, hotFrom::get, to);
+        }
+        return sketches;
+    }
+
+    private void planViews(Map<String, LocalDateTime> starts, LocalDateTime to, boolean unique,
+                           List<UriSegment> segments, Map<Integer, LocalDateTime> hotFrom) {
+        hitDictionary.lookupUriIds(starts.keySet()).forEach((uri, uriId) -> {
+            LocalDateTime from = inclusiveStart(starts.get(uri));
+            LocalDateTime split = hotSplit(from, to);
+            List<TimeSegment> plan = unique ? RollupPlanner.planSketches(from, split) : RollupPlanner.plan(from, split);
+            plan.forEach(segment -> segments.add(new UriSegment(uriId, segment)));
+            if (split.isBefore(to)) {
+                hotFrom.put(uriId, split);
+            }
+        });
+    }
+
+    private static Map<String, LocalDateTime> viewStarts(ViewsRequestDto viewsRequestDto) {
+        LocalDateTime end = viewsRequestDto.getEnd();
+        Map<String, LocalDateTime> starts = new HashMap<>();
+        for (UriStartDto uriStart : viewsRequestDto.getUris()) {
+            if (end.isBefore(uriStart.getStart())) {
+                throw new InvalidDateException("End date can't be before start date");
+            }
+            starts.merge(uriStart.getUri(), uriStart.getStart(), (a, b) -> a.isBefore(b) ? a : b);
+        }
+        return starts;
+    }
+
+    private void retainMatching(Map<ViewKey, ?> hot, ViewFilter filter) {
+        hot.keySet().removeIf(key -> (filter.appId() != null && !filter.appId().equals(key.appId()))
+                || (filter.uriPrefix() != null && !hitDictionary.uri(key.uriId()).startsWith(filter.uriPrefix())));
+    }
+
+    private static void validateRange(LocalDateTime start, LocalDateTime end) {
         if (start != null && end != null) {
             if (end.isBefore(start)) {
                 throw new InvalidDateException("End date can't be before start date");
             }
         }
+    }
 
-        if (unique) {
-            return statsRepository.findDistinctViewStats(start, end, uris);
+    private LocalDateTime hotSplit(LocalDateTime from, LocalDateTime to) {
+        if (hotWindow.isEmpty()) {
+            return to;
+        }
+        LocalDateTime hotStart = hotWindow.get().getStart();
+        if (!to.isAfter(hotStart)) {
+            return to;
         }
-        return statsRepository.findAllViewStats(start, end, uris);
+        return from.isAfter(hotStart) ? from : hotStart;
+    }
+
+    private static List<ViewCount> estimate(Map<ViewKey, HyperLogLog> sketches) {
+        return sketches.entrySet().stream()
+                .map(entry -> new ViewCount(entry.getKey().appId(), entry.getKey().uriId(),
+                        entry.getValue().estimate()))
+                .sorted(Comparator.comparing(ViewCount::hits).reversed())
+                .toList();
+    }
+
+    private static Map<ViewKey, Long> toMap(List<ViewCount> counts) {
+        Map<ViewKey, Long> map = new HashMap<>();
+        counts.forEach(count -> map.merge(new ViewKey(count.appId(), count.uriId()), count.hits(), Long::sum));
+        return map;
+    }
+
+    private static List<ViewCount> sorted(Map<ViewKey, Long> counts) {
+        return counts.entrySet().stream()
+                .map(entry -> new ViewCount(entry.getKey().appId(), entry.getKey().uriId(), entry.getValue()))
+                .sorted(Comparator.comparing(ViewCount::hits).reversed())
+                .toList();
+    }
+
+    private static LocalDateTime inclusiveStart(LocalDateTime start) {
+        LocalDateTime second = start.truncatedTo(ChronoUnit.SECONDS);
+        return second.equals(start) ? start : second.plusSeconds(1);
+    }
+
+    private static LocalDateTime exclusiveEnd(LocalDateTime end) {
+        return end.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
     }
 }
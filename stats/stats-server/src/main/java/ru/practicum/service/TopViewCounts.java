@@ -0,0 +1,38 @@
+package ru.practicum.service;
+
+import ru.practicum.model.ViewCount;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Min-heap of the best `limit` counts offered so far; ties prefer lower app and uri ids to keep pages stable
+class TopViewCounts {
+    private static final Comparator<ViewCount> ORDER = Comparator.comparing(ViewCount::hits)
+            .thenComparing(ViewCount::appId, Comparator.reverseOrder())
+            .thenComparing(ViewCount::uriId, Comparator.reverseOrder());
+
+    private final int limit;
+    private final PriorityQueue<ViewCount> heap;
+
+    TopViewCounts(int limit) {
+        this.limit = limit;
+        this.heap = new PriorityQueue<>(limit + 1, ORDER);
+    }
+
+    void offer(ViewCount count) {
+        if (heap.size() < limit) {
+            heap.add(count);
+        } else if (ORDER.compare(count, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(count);
+        }
+    }
+
+    List<ViewCount> toList() {
+        List<ViewCount> top = new ArrayList<>(heap);
+        top.sort(ORDER.reversed());
+        return top;
+    }
+}
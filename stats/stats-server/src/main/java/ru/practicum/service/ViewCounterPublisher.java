@@ -0,0 +1,226 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.UriStartDto;
+import ru.practicum.ViewStatsDto;
+import ru.practicum.ViewUpdateDto;
+import ru.practicum.ViewsRequestDto;
+import ru.practicum.model.ViewCounter;
+import ru.practicum.repository.ViewCounterRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keeps all-time per-uri totals in view_counters, stamping each change with a sequence number that subscribers use as
+// their offset; a row holds only the latest counts, so replaying from any offset is idempotent. Sends run on their
+// own executor, one delivery per subscriber at a time, so a slow subscriber never holds up the scheduler thread
+@Component
+@ConditionalOnProperty(name = "stats.push.enabled", havingValue = "true")
+@Slf4j
+public class ViewCounterPublisher {
+    private static final LocalDateTime ALL_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final StatsService statsService;
+    private final HitDictionary hitDictionary;
+    private final ViewCounterRepository viewCounterRepository;
+    private final int batchSize;
+    private final long heartbeatNanos;
+    private final long emitterTimeoutMillis;
+    private final long stallTimeoutNanos;
+    private final ExecutorService deliveryExecutor;
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Counter updatedCounter;
+    private final Counter sentCounter;
+    private final Counter stalledCounter;
+
+    public ViewCounterPublisher(@Lazy StatsService statsService,
+                                HitDictionary hitDictionary,
+                                ViewCounterRepository viewCounterRepository,
+                                @Value("${stats.push.batch-size:500}") int batchSize,
+                                @Value("${stats.push.heartbeat:10s}") Duration heartbeat,
+                                @Value("${stats.push.emitter-timeout:30m}") Duration emitterTimeout,
+                                @Value("${stats.push.stall-timeout:30s}") Duration stallTimeout,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                MeterRegistry meterRegistry) {
+        this.statsService = statsService;
+        this.hitDictionary = hitDictionary;
+        this.viewCounterRepository = viewCounterRepository;
+        this.batchSize = batchSize;
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.stallTimeoutNanos = stallTimeout.toNanos();
+        this.deliveryExecutor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool(Thread.ofPlatform().daemon().name("view-updates-", 0).factory());
+        this.updatedCounter = meterRegistry.counter("stats.server.push.counters.updated");
+        this.sentCounter = meterRegistry.counter("stats.server.push.updates.sent");
+        this.stalledCounter = meterRegistry.counter("stats.server.push.subscribers.stalled");
+        meterRegistry.gauge("stats.server.push.subscribers", subscribers, List::size);
+    }
+
+    @PostConstruct
+    public void trackExisting() {
+        List<String> untracked = viewCounterRepository.findUntrackedUris();
+        dirty.addAll(untracked);
+        log.info("View counter publisher started, {} uris queued for initial counting", untracked.size());
+    }
+
+    public void markAfterCommit(Collection<String> uris) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dirty.addAll(uris);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dirty.addAll(uris);
+            }
+        });
+    }
+
+    public SseEmitter subscribe(long offset, String uriPrefix) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, uriPrefix, offset);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        log.info("View updates subscriber added from offset {}, uri prefix {}", offset, uriPrefix);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.push.interval-ms:1000}")
+    public void publish() {
+        refresh();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.delivering.compareAndSet(false, true)) {
+                subscriber.deliveryStarted = System.nanoTime();
+                deliveryExecutor.execute(() -> {
+                    try {
+                        deliver(subscriber);
+                    } finally {
+                        subscriber.delivering.set(false);
+                    }
+                });
+            } else if (System.nanoTime() - subscriber.deliveryStarted > stallTimeoutNanos
+                    && subscribers.remove(subscriber)) {
+                stalledCounter.increment();
+                log.info("View updates subscriber stalled at offset {}, dropping it", subscriber.offset);
+                // Completing takes the emitter's write lock, which the stalled send may still hold
+                deliveryExecutor.execute(() -> subscriber.emitter.completeWithError(
+                        new IllegalStateException("View updates subscriber stalled")));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        deliveryExecutor.shutdownNow();
+    }
+
+    private void refresh() {
+        List<String> uris = new ArrayList<>(batchSize);
+        for (String uri : dirty) {
+            dirty.remove(uri);
+            uris.add(uri);
+            if (uris.size() == batchSize) {
+                count(uris);
+                uris.clear();
+            }
+        }
+        count(uris);
+    }
+
+    private void count(List<String> uris) {
+        if (uris.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<UriStartDto> starts = uris.stream().map(uri -> new UriStartDto(uri, ALL_TIME)).toList();
+        try {
+            Map<String, Long> hits = sumByUri(statsService.getViews(new ViewsRequestDto(starts, now, false)));
+            Map<String, Long> uniqueHits = sumByUri(statsService.getViews(new ViewsRequestDto(starts, now, true)));
+            List<ViewCounter> counters = new ArrayList<>(hits.size());
+            hitDictionary.lookupUriIds(hits.keySet()).forEach((uri, uriId) ->
+                    counters.add(new ViewCounter(uriId, hits.get(uri), uniqueHits.getOrDefault(uri, 0L))));
+            viewCounterRepository.upsert(counters);
+            updatedCounter.increment(counters.size());
+        } catch (RuntimeException e) {
+            dirty.addAll(uris);
+            throw e;
+        }
+    }
+
+    private void deliver(Subscriber subscriber) {
+        try {
+            List<ViewUpdateDto> updates;
+            do {
+                updates = viewCounterRepository.findUpdatesAfter(subscriber.offset, subscriber.uriPrefix, batchSize);
+                if (!updates.isEmpty()) {
+                    long last = updates.getLast().getOffset();
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(String.valueOf(last))
+                            .name("views")
+                            .data(updates, MediaType.APPLICATION_JSON));
+                    subscriber.offset = last;
+                    subscriber.lastSent = System.nanoTime();
+                    sentCounter.increment(updates.size());
+                }
+            } while (updates.size() == batchSize);
+            if (System.nanoTime() - subscriber.lastSent > heartbeatNanos) {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                subscriber.lastSent = System.nanoTime();
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("View updates subscriber dropped at offset {}: {}", subscriber.offset, e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private static Map<String, Long> sumByUri(List<ViewStatsDto> stats) {
+        Map<String, Long> sums = new HashMap<>();
+        stats.forEach(view -> sums.merge(view.getUri(), view.getHits(), Long::sum));
+        return sums;
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final String uriPrefix;
+        private final AtomicBoolean delivering = new AtomicBoolean();
+        private volatile long deliveryStarted;
+        private volatile long offset;
+        private long lastSent = System.nanoTime();
+
+        Subscriber(SseEmitter emitter, String uriPrefix, long offset) {
+            this.emitter = emitter;
+            this.uriPrefix = uriPrefix;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.EndpointHitSaveDto;
+import ru.practicum.model.WalPosition;
+import ru.practicum.repository.WalCheckpointRepository;
+import ru.practicum.repository.WalQuarantineRepository;
+import ru.practicum.wal.HitWal;
+import ru.practicum.wal.WalSegment;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Applies WAL batches to the database; a batch that keeps failing for a non-transient reason is split until
+// the offending records are isolated and moved to hit_wal_quarantine, so one bad record can't stall the WAL
+@Component
+@ConditionalOnProperty(name = "stats.wal.enabled", havingValue = "true")
+@Slf4j
+public class WalDrainer {
+    private static final int BATCH_SIZE = 10_000;
+
+    private final HitWal hitWal;
+    private final HitWriter hitWriter;
+    private final WalCheckpointRepository checkpointRepository;
+    private final WalQuarantineRepository quarantineRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final Counter quarantinedCounter;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile WalPosition position;
+    private volatile int failedAttempts;
+
+    public WalDrainer(HitWal hitWal,
+                      HitWriter hitWriter,
+                      WalCheckpointRepository checkpointRepository,
+                      WalQuarantineRepository quarantineRepository,
+                      TransactionTemplate transactionTemplate,
+                      @Value("${stats.wal.max-attempts:5}") int maxAttempts,
+                      MeterRegistry meterRegistry) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("WAL drain attempts must be positive");
+        }
+        this.hitWal = hitWal;
+        this.hitWriter = hitWriter;
+        this.checkpointRepository = checkpointRepository;
+        this.quarantineRepository = quarantineRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+        this.quarantinedCounter = meterRegistry.counter("stats.server.wal.quarantined");
+        meterRegistry.gauge("stats.server.wal.lag.bytes", this, WalDrainer::lag);
+        meterRegistry.gauge("stats.server.wal.failed.attempts", this, drainer -> drainer.failedAttempts);
+    }
+
+    @PostConstruct
+    public void init() {
+        position = checkpointRepository.find().orElse(new WalPosition(0, 0));
+        if (position.segment() > hitWal.getActiveSequence()) {
+            log.warn("Hit WAL checkpoint {} is ahead of the WAL files, starting from the oldest segment", position);
+            position = new WalPosition(0, 0);
+        }
+        WalSegment segment = hitWal.findSegment(0);
+        while (segment != null && segment.getSequence() < position.segment()) {
+            hitWal.delete(segment);
+            segment = hitWal.findSegment(0);
+        }
+        log.info("Draining hit WAL from {}", position);
+    }
+
+    @Scheduled(fixedDelayString = "${stats.wal.drain-delay-ms:200}")
+    public void drain() {
+        lock.lock();
+        try {
+            hitWal.force();
+            WalSegment segment;
+            while ((segment = hitWal.findSegment(position.segment())) != null) {
+                boolean sealed = segment.isSealed();
+                int offset = segment.getSequence() == position.segment() ? position.offset() : 0;
+                WalSegment.Batch batch = segment.read(offset, BATCH_SIZE);
+                if (batch.records().isEmpty()) {
+                    if (!sealed) {
+                        return;
+                    }
+                    hitWal.delete(segment);
+                    position = new WalPosition(segment.getSequence() + 1, 0);
+                    continue;
+                }
+                if (failedAttempts < maxAttempts) {
+                    apply(segment.getSequence(), batch.records());
+                } else {
+                    log.warn("Hit WAL batch at {} failed {} times, isolating bad records", position, failedAttempts);
+                    isolate(segment.getSequence(), batch.records());
+                }
+                failedAttempts = 0;
+                log.debug("Drained {} hits from the WAL up to {}", batch.records().size(), position);
+            }
+        } catch (RuntimeException e) {
+            failedAttempts++;
+            log.warn("Hit WAL drain stopped at {} with {} bytes pending (attempt {}): {}", position, lag(),
+                    failedAttempts, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(long segment, List<WalSegment.Record> records) {
+        WalPosition next = new WalPosition(segment, records.getLast().end());
+        List<EndpointHitSaveDto> hits = records.stream().map(WalSegment.Record::hit).filter(Objects::nonNull).toList();
+        List<WalSegment.Record> undecodable = records.stream().filter(record -> record.hit() == null).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!hits.isEmpty()) {
+                hitWriter.write(hits);
+            }
+            undecodable.forEach(record -> quarantineRepository.save(segment, record.offset(), record.payload(),
+                    "Undecodable WAL record"));
+            checkpointRepository.save(next);
+        });
+        position = next;
+        if (!undecodable.isEmpty()) {
+            quarantinedCounter.increment(undecodable.size());
+            log.error("Quarantined {} undecodable hit WAL records before {}", undecodable.size(), next);
+        }
+    }
+
+    private void isolate(long segment, List<WalSegment.Record> records) {
+        try {
+            apply(segment, records);
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            if (records.size() > 1) {
+                int middle = records.size() / 2;
+                isolate(segment, records.subList(0, middle));
+                isolate(segment, records.subList(middle, records.size()));
+                return;
+            }
+            WalSegment.Record record = records.getFirst();
+            WalPosition next = new WalPosition(segment, record.end());
+            String error = String.valueOf(NestedExceptionUtils.getMostSpecificCause(e));
+            transactionTemplate.executeWithoutResult(status -> {
+                quarantineRepository.save(segment, record.offset(), record.payload(), error);
+                checkpointRepository.save(next);
+            });
+            position = next;
+            quarantinedCounter.increment();
+            log.error("Quarantined hit WAL record at {}:{} {}: {}", segment, record.offset(), record.hit(), error);
+        }
+    }
+
+    // Failures that say nothing about the records themselves; quarantining on them would empty the WAL into
+    // the dead-letter table while the database is down
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    private double lag() {
+        WalPosition current = position;
+        return current == null ? 0 : hitWal.pendingBytes(current.segment(), current.offset());
+    }
+}
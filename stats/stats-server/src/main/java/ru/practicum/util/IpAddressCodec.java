@@ -0,0 +1,77 @@
+package ru.practicum.util;
+
+import ru.practicum.exception.InvalidIpAddressException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+public class IpAddressCodec {
+    private IpAddressCodec() {
+
+    }
+
+    public static byte[] encode(String ip) {
+        if (ip == null) {
+            return null;
+        }
+        if (ip.indexOf(':') >= 0) {
+            return encodeIpv6(ip);
+        }
+        return encodeIpv4(ip);
+    }
+
+    public static String decode(byte[] ip) {
+        if (ip == null) {
+            return null;
+        }
+        if (ip.length == 4) {
+            return (ip[0] & 0xFF) + "." + (ip[1] & 0xFF) + "." + (ip[2] & 0xFF) + "." + (ip[3] & 0xFF);
+        }
+        try {
+            return InetAddress.getByAddress(ip).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Stored ip address has invalid length " + ip.length);
+        }
+    }
+
+    private static byte[] encodeIpv4(String ip) {
+        byte[] address = new byte[4];
+        int octet = 0;
+        int value = -1;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || octet == 4) {
+                    throw new InvalidIpAddressException("Invalid ip address: " + ip);
+                }
+                address[octet++] = (byte) value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    throw new InvalidIpAddressException("Invalid ip address: " + ip);
+                }
+            } else {
+                throw new InvalidIpAddressException("Invalid ip address: " + ip);
+            }
+        }
+        if (octet != 4) {
+            throw new InvalidIpAddressException("Invalid ip address: " + ip);
+        }
+        return address;
+    }
+
+    private static byte[] encodeIpv6(String ip) {
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != ':' && c != '.') {
+                throw new InvalidIpAddressException("Invalid ip address: " + ip);
+            }
+        }
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            throw new InvalidIpAddressException("Invalid ip address: " + ip);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package ru.practicum.wal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.EndpointHitSaveDto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@Component
+@ConditionalOnProperty(name = "stats.wal.enabled", havingValue = "true")
+@Slf4j
+public class HitWal {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("hits-(\\d{20})\\.wal");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ConcurrentSkipListMap<Long, WalSegment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private WalSegment active;
+
+    public HitWal(@Value("${stats.wal.directory:wal}") Path directory,
+                  @Value("${stats.wal.segment-size:64MB}") DataSize segmentSize) {
+        this.directory = directory;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                    if (matcher.matches()) {
+                        long sequence = Long.parseLong(matcher.group(1));
+                        segments.put(sequence, WalSegment.recover(sequence, file));
+                    }
+                }
+            }
+            log.info("Opened hit WAL in {} with {} existing segments", directory.toAbsolutePath(), segments.size());
+            rotate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void append(List<EndpointHitSaveDto> hits) {
+        lock.lock();
+        try {
+            List<byte[]> records = hits.stream().map(WalSegment::encode).toList();
+            int from = 0;
+            while (from < records.size()) {
+                int appended = active.append(records, from);
+                if (appended == 0 && active.isEmpty()) {
+                    throw new IllegalArgumentException("Hit does not fit into a WAL segment");
+                }
+                from += appended;
+                if (from < records.size()) {
+                    rotate();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public WalSegment findSegment(long sequence) {
+        Map.Entry<Long, WalSegment> entry = segments.ceilingEntry(sequence);
+        return entry == null ? null : entry.getValue();
+    }
+
+    public long pendingBytes(long sequence, int offset) {
+        long pending = 0;
+        for (WalSegment segment : segments.tailMap(sequence).values()) {
+            pending += segment.getSequence() == sequence ? segment.written() - offset : segment.written();
+        }
+        return pending;
+    }
+
+    public long getActiveSequence() {
+        lock.lock();
+        try {
+            return active.getSequence();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void delete(WalSegment segment) {
+        if (!segment.isSealed()) {
+            throw new IllegalStateException("Active WAL segment can't be deleted");
+        }
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.remove(segment.getSequence());
+    }
+
+    public void force() {
+        lock.lock();
+        try {
+            active.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            active.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rotate() {
+        if (active != null) {
+            active.seal();
+        }
+        long sequence = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        Path path = directory.resolve(String.format("hits-%020d.wal", sequence));
+        try {
+            active = WalSegment.create(sequence, path, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.put(sequence, active);
+    }
+}
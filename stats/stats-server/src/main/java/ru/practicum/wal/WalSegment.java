@@ -0,0 +1,181 @@
+package ru.practicum.wal;
+
+import ru.practicum.EndpointHitSaveDto;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+// Record layout: payload length, CRC32C of the payload, payload; a zero length marks the end of written data
+public class WalSegment {
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final long sequence;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private volatile int writePosition;
+    private volatile boolean sealed;
+
+    private WalSegment(long sequence, Path path, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    static WalSegment create(long sequence, Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return new WalSegment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    static WalSegment recover(long sequence, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            WalSegment segment = new WalSegment(sequence, path,
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            int position = 0;
+            int length;
+            while ((length = segment.recordLength(position)) > 0) {
+                position += RECORD_HEADER_BYTES + length;
+            }
+            segment.writePosition = position;
+            segment.sealed = true;
+            return segment;
+        }
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    boolean isEmpty() {
+        return writePosition == 0;
+    }
+
+    int append(List<byte[]> records, int from) {
+        int position = writePosition;
+        int appended = 0;
+        for (int i = from; i < records.size(); i++) {
+            byte[] record = records.get(i);
+            if (position + RECORD_HEADER_BYTES + record.length + Integer.BYTES > buffer.capacity()) {
+                break;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(record);
+            buffer.put(position + RECORD_HEADER_BYTES, record);
+            buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+            buffer.putInt(position, record.length);
+            position += RECORD_HEADER_BYTES + record.length;
+            appended++;
+        }
+        writePosition = position;
+        return appended;
+    }
+
+    public Batch read(int offset, int maxRecords) {
+        int end = writePosition;
+        int position = offset;
+        List<Record> records = new ArrayList<>();
+        while (position < end && records.size() < maxRecords) {
+            int length = buffer.getInt(position);
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_BYTES, payload);
+            int next = position + RECORD_HEADER_BYTES + length;
+            records.add(new Record(position, next, payload, decode(payload)));
+            position = next;
+        }
+        return new Batch(records, position);
+    }
+
+    void seal() {
+        buffer.force();
+        sealed = true;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    int written() {
+        return writePosition;
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    static byte[] encode(EndpointHitSaveDto hit) {
+        byte[] app = hit.getApp().getBytes(StandardCharsets.UTF_8);
+        byte[] uri = hit.getUri().getBytes(StandardCharsets.UTF_8);
+        byte[] ip = hit.getIp().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(3 * Integer.BYTES + app.length + uri.length + ip.length + Long.BYTES);
+        record.putInt(app.length).put(app);
+        record.putInt(uri.length).put(uri);
+        record.putInt(ip.length).put(ip);
+        record.putLong(hit.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        return record.array();
+    }
+
+    // Returns null for a payload that can't be decoded, the drainer quarantines such records
+    private static EndpointHitSaveDto decode(byte[] payload) {
+        try {
+            return decode(ByteBuffer.wrap(payload));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static EndpointHitSaveDto decode(ByteBuffer record) {
+        String app = readString(record);
+        String uri = readString(record);
+        String ip = readString(record);
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(record.getLong(), 0, ZoneOffset.UTC);
+        return new EndpointHitSaveDto(app, uri, ip, timestamp);
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0 || length > record.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] value = new byte[length];
+        record.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private int recordLength(int position) {
+        if (position + RECORD_HEADER_BYTES > buffer.capacity()) {
+            return 0;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+            return 0;
+        }
+        byte[] record = new byte[length];
+        buffer.get(position + RECORD_HEADER_BYTES, record);
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        return (int) crc.getValue() == buffer.getInt(position + Integer.BYTES) ? length : 0;
+    }
+
+    public record Batch(List<Record> records, int end) {
+    }
+
+    public record Record(int offset, int end, byte[] payload, EndpointHitSaveDto hit) {
+    }
+}
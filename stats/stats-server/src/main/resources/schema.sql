@@ -1,7 +1,143 @@
+CREATE TABLE IF NOT EXISTS apps (
+  id SERIAL PRIMARY KEY,
+  name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS uris (
+  id SERIAL PRIMARY KEY,
+  uri VARCHAR(255) NOT NULL UNIQUE
+);
+
 CREATE TABLE IF NOT EXISTS hits (
-  id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
-  app VARCHAR(255) NOT NULL,
-  uri VARCHAR(255) NOT NULL,
-  ip VARCHAR(255) NOT NULL,
-  time_stamp TIMESTAMP NOT NULL
-);
\ No newline at end of file
+  id BIGSERIAL,
+  app_id INT NOT NULL,
+  uri_id INT NOT NULL,
+  ip BYTEA NOT NULL,
+  time_stamp TIMESTAMP NOT NULL,
+  weight INT NOT NULL DEFAULT 1,
+  PRIMARY KEY (id, time_stamp)
+) PARTITION BY RANGE (time_stamp);
+
+CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT;
+
+ALTER TABLE hits ADD COLUMN IF NOT EXISTS weight INT NOT NULL DEFAULT 1;
+
+DROP INDEX IF EXISTS hits_time_stamp_idx;
+CREATE INDEX IF NOT EXISTS hits_time_stamp_id_idx ON hits (time_stamp, id);
+
+CREATE TABLE IF NOT EXISTS hit_seconds (
+  app_id INT NOT NULL,
+  uri_id INT NOT NULL,
+  bucket TIMESTAMP NOT NULL,
+  hits BIGINT NOT NULL,
+  ips BYTEA[] NOT NULL,
+  PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS hit_seconds_bucket_idx ON hit_seconds (bucket);
+
+CREATE OR REPLACE VIEW hit_counts AS
+SELECT app_id, uri_id, time_stamp, weight AS hits FROM hits
+UNION ALL
+SELECT app_id, uri_id, bucket, hits FROM hit_seconds;
+
+CREATE OR REPLACE VIEW hit_ips AS
+SELECT app_id, uri_id, time_stamp, ip FROM hits
+UNION ALL
+SELECT s.app_id, s.uri_id, s.bucket, i.ip FROM hit_seconds s CROSS JOIN LATERAL unnest(s.ips) AS i(ip);
+
+CREATE TABLE IF NOT EXISTS hit_compaction_checkpoint (
+  id INT PRIMARY KEY,
+  horizon TIMESTAMP,
+  last_time_stamp TIMESTAMP,
+  last_id BIGINT,
+  compacted_before TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS hit_rollups_minute (
+  app_id INT NOT NULL,
+  uri_id INT NOT NULL,
+  bucket TIMESTAMP NOT NULL,
+  hits BIGINT NOT NULL,
+  PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS hit_rollups_hour (
+  app_id INT NOT NULL,
+  uri_id INT NOT NULL,
+  bucket TIMESTAMP NOT NULL,
+  hits BIGINT NOT NULL,
+  PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS hit_rollups_day (
+  app_id INT NOT NULL,
+  uri_id INT NOT NULL,
+  bucket TIMESTAMP NOT NULL,
+  hits BIGINT NOT NULL,
+  PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS hit_rollups_minute_bucket_idx ON hit_rollups_minute (bucket);
+CREATE INDEX IF NOT EXISTS hit_rollups_hour_bucket_idx ON hit_rollups_hour (bucket);
+CREATE INDEX IF NOT EXISTS hit_rollups_day_bucket_idx ON hit_rollups_day (bucket);
+
+INSERT INTO hit_rollups_minute (app_id, uri_id, bucket, hits)
+SELECT app_id, uri_id, date_trunc('minute', time_stamp), sum(hits) FROM hit_counts
+WHERE NOT EXISTS (SELECT 1 FROM hit_rollups_minute)
+GROUP BY app_id, uri_id, date_trunc('minute', time_stamp);
+
+INSERT INTO hit_rollups_hour (app_id, uri_id, bucket, hits)
+SELECT app_id, uri_id, date_trunc('hour', time_stamp), sum(hits) FROM hit_counts
+WHERE NOT EXISTS (SELECT 1 FROM hit_rollups_hour)
+GROUP BY app_id, uri_id, date_trunc('hour', time_stamp);
+
+INSERT INTO hit_rollups_day (app_id, uri_id, bucket, hits)
+SELECT app_id, uri_id, date_trunc('day', time_stamp), sum(hits) FROM hit_counts
+WHERE NOT EXISTS (SELECT 1 FROM hit_rollups_day)
+GROUP BY app_id, uri_id, date_trunc('day', time_stamp);
+
+CREATE TABLE IF NOT EXISTS hit_sketches_hour (
+  app_id INT NOT NULL,
+  uri_id INT NOT NULL,
+  bucket TIMESTAMP NOT NULL,
+  registers BYTEA NOT NULL,
+  PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS hit_sketches_day (
+  app_id INT NOT NULL,
+  uri_id INT NOT NULL,
+  bucket TIMESTAMP NOT NULL,
+  registers BYTEA NOT NULL,
+  PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS hit_sketches_hour_bucket_idx ON hit_sketches_hour (bucket);
+CREATE INDEX IF NOT EXISTS hit_sketches_day_bucket_idx ON hit_sketches_day (bucket);
+
+CREATE TABLE IF NOT EXISTS hit_wal_checkpoint (
+  id INT PRIMARY KEY,
+  segment BIGINT NOT NULL,
+  position INT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS hit_wal_quarantine (
+  id BIGSERIAL PRIMARY KEY,
+  segment BIGINT NOT NULL,
+  position INT NOT NULL,
+  payload BYTEA NOT NULL,
+  error TEXT NOT NULL,
+  quarantined_at TIMESTAMP NOT NULL
+);
+
+CREATE SEQUENCE IF NOT EXISTS view_counters_seq;
+
+CREATE TABLE IF NOT EXISTS view_counters (
+  uri_id INT PRIMARY KEY,
+  hits BIGINT NOT NULL,
+  unique_hits BIGINT NOT NULL,
+  seq BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS view_counters_seq_idx ON view_counters (seq);